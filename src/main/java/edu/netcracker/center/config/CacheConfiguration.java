@@ -2,6 +2,7 @@ package edu.netcracker.center.config;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.ehcache.InstrumentedEhcache;
+import edu.netcracker.center.service.PaginationCountService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
@@ -66,6 +67,11 @@ public class CacheConfiguration {
                 cacheManager.replaceCacheWithDecoratedCache(cache, decoratedCache);
             }
         }
+        net.sf.ehcache.Cache countCache = cacheManager.getCache(PaginationCountService.CACHE);
+        if (countCache != null) {
+            countCache.getCacheConfiguration().setTimeToLiveSeconds(jHipsterProperties.getCache().getCountTimeToLiveSeconds());
+            cacheManager.replaceCacheWithDecoratedCache(countCache, InstrumentedEhcache.instrument(metricRegistry, countCache));
+        }
         EhCacheCacheManager ehCacheManager = new EhCacheCacheManager();
         ehCacheManager.setCacheManager(cacheManager);
         return ehCacheManager;
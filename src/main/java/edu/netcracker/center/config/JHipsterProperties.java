@@ -33,6 +33,8 @@ public class JHipsterProperties {
 
     private final Workdir workdir = new Workdir();
 
+    private final Integration integration = new Integration();
+
     private final CorsConfiguration cors = new CorsConfiguration();
 
 
@@ -73,6 +75,10 @@ public class JHipsterProperties {
         return workdir;
     }
 
+    public Integration getIntegration() {
+        return integration;
+    }
+
     public CorsConfiguration getCors() {
         return cors;
     }
@@ -180,6 +186,8 @@ public class JHipsterProperties {
 
         private int timeToLiveSeconds = 3600;
 
+        private int countTimeToLiveSeconds = 10;
+
         private final Ehcache ehcache = new Ehcache();
 
         public int getTimeToLiveSeconds() {
@@ -190,6 +198,14 @@ public class JHipsterProperties {
             this.timeToLiveSeconds = timeToLiveSeconds;
         }
 
+        public int getCountTimeToLiveSeconds() {
+            return countTimeToLiveSeconds;
+        }
+
+        public void setCountTimeToLiveSeconds(int countTimeToLiveSeconds) {
+            this.countTimeToLiveSeconds = countTimeToLiveSeconds;
+        }
+
         public Ehcache getEhcache() {
             return ehcache;
         }
@@ -212,6 +228,12 @@ public class JHipsterProperties {
 
         private String from = "jeduCenter@localhost";
 
+        private int batchSize = 50;
+
+        private int maxAttempts = 8;
+
+        private long retryDelay = 60;
+
         public String getFrom() {
             return from;
         }
@@ -219,6 +241,30 @@ public class JHipsterProperties {
         public void setFrom(String from) {
             this.from = from;
         }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getRetryDelay() {
+            return retryDelay;
+        }
+
+        public void setRetryDelay(long retryDelay) {
+            this.retryDelay = retryDelay;
+        }
     }
 
     public static class Security {
@@ -431,6 +477,8 @@ public class JHipsterProperties {
 
         private String path = "/workDir";
 
+        private long maxFileSize = 10 * 1024 * 1024;
+
         public String getPath() {
             return path;
         }
@@ -438,5 +486,56 @@ public class JHipsterProperties {
         public void setPath(String path) {
             this.path = path;
         }
+
+        public long getMaxFileSize() {
+            return maxFileSize;
+        }
+
+        public void setMaxFileSize(long maxFileSize) {
+            this.maxFileSize = maxFileSize;
+        }
+    }
+
+    public static class Integration {
+
+        private int batchSize = 50;
+
+        private int jobsCapacity = 100;
+
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        private long exportCacheSize = 100 * 1024 * 1024;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getJobsCapacity() {
+            return jobsCapacity;
+        }
+
+        public void setJobsCapacity(int jobsCapacity) {
+            this.jobsCapacity = jobsCapacity;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public long getExportCacheSize() {
+            return exportCacheSize;
+        }
+
+        public void setExportCacheSize(long exportCacheSize) {
+            this.exportCacheSize = exportCacheSize;
+        }
     }
 }
@@ -1,6 +1,7 @@
 package edu.netcracker.center.config;
 
 import edu.netcracker.center.config.locale.AngularCookieLocaleResolver;
+import edu.netcracker.center.web.rest.util.StreamingUploadUtil;
 import org.springframework.boot.bind.RelaxedPropertyResolver;
 import org.springframework.context.EnvironmentAware;
 import org.springframework.context.MessageSource;
@@ -10,11 +11,14 @@ import org.springframework.context.support.ReloadableResourceBundleMessageSource
 import org.springframework.core.env.Environment;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.commons.CommonsMultipartResolver;
 import org.springframework.web.servlet.LocaleResolver;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 import org.springframework.web.servlet.i18n.LocaleChangeInterceptor;
 
+import javax.servlet.http.HttpServletRequest;
 import java.util.List;
 
 @Configuration
@@ -34,6 +38,23 @@ public class WebMvcConfiguration extends WebMvcConfigurerAdapter implements Envi
         return cookieLocaleResolver;
     }
 
+    /**
+     * Uploads to the streaming paths of {@link StreamingUploadUtil} are left unresolved, they read the request body
+     * by themselves.
+     */
+    @Bean(name = "multipartResolver")
+    public MultipartResolver multipartResolver(JHipsterProperties jHipsterProperties) {
+        CommonsMultipartResolver resolver = new CommonsMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                return !StreamingUploadUtil.isStreamingUpload(request) && super.isMultipart(request);
+            }
+        };
+        resolver.setDefaultEncoding("UTF-8");
+        resolver.setMaxUploadSizePerFile(jHipsterProperties.getWorkdir().getMaxFileSize());
+        return resolver;
+    }
+
     @Bean
     public MessageSource messageSource() {
         ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
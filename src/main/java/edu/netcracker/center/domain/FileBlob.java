@@ -0,0 +1,109 @@
+package edu.netcracker.center.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+/**
+ * A stored file content, identified by the SHA-256 hash of the content.
+ *
+ * <p>
+ * The content is referenced by forms and recalls, it is removed by the garbage collection of
+ * {@link edu.netcracker.center.service.FileServerService} some time after the last reference is released.
+ * </p>
+ */
+@Entity
+@Table(name = "file_blob")
+public class FileBlob implements Serializable {
+
+    @Id
+    @Size(min = 64, max = 64)
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    @NotNull
+    @Column(name = "size", nullable = false)
+    private Long size;
+
+    @NotNull
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @NotNull
+    @Column(name = "creation_time", nullable = false)
+    private ZonedDateTime creationTime;
+
+    @Column(name = "release_time")
+    private ZonedDateTime releaseTime;
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+    public ZonedDateTime getCreationTime() {
+        return creationTime;
+    }
+
+    public void setCreationTime(ZonedDateTime creationTime) {
+        this.creationTime = creationTime;
+    }
+
+    public ZonedDateTime getReleaseTime() {
+        return releaseTime;
+    }
+
+    public void setReleaseTime(ZonedDateTime releaseTime) {
+        this.releaseTime = releaseTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FileBlob fileBlob = (FileBlob) o;
+        return Objects.equals(hash, fileBlob.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(hash);
+    }
+
+    @Override
+    public String toString() {
+        return "FileBlob{" +
+            "hash='" + hash + "'" +
+            ", size='" + size + "'" +
+            ", refCount='" + refCount + "'" +
+            ", creationTime='" + creationTime + "'" +
+            ", releaseTime='" + releaseTime + "'" +
+            '}';
+    }
+}
@@ -26,6 +26,10 @@ public class Form implements Serializable {
 
     @Column(name = "file")
     private String file;
+
+    @Column(name = "file_hash", length = 64)
+    @JsonIgnore
+    private String fileHash;
     
     @NotNull
     @Column(name = "creation_time", nullable = false)
@@ -55,6 +59,14 @@ public class Form implements Serializable {
         this.file = file;
     }
 
+    public String getFileHash() {
+        return fileHash;
+    }
+
+    public void setFileHash(String fileHash) {
+        this.fileHash = fileHash;
+    }
+
     public ZonedDateTime getCreationTime() {
         return creationTime;
     }
@@ -104,6 +116,7 @@ public class Form implements Serializable {
         return "Form{" +
             "id=" + id +
             ", file='" + file + "'" +
+            ", fileHash='" + fileHash + "'" +
             ", creationTime='" + creationTime + "'" +
             ", isActive='" + isActive + "'" +
             '}';
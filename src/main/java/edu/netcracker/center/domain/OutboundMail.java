@@ -0,0 +1,191 @@
+package edu.netcracker.center.domain;
+
+import edu.netcracker.center.domain.enumeration.MailStatusEnumeration;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+/**
+ * An e-mail waiting in the outbox or already dispatched.
+ */
+@Entity
+@Table(name = "outbound_mail")
+public class OutboundMail implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @NotNull
+    @Column(name = "recipient", nullable = false)
+    private String recipient;
+
+    @Column(name = "subject")
+    private String subject;
+
+    @Lob
+    @Column(name = "content")
+    private String content;
+
+    @NotNull
+    @Column(name = "is_multipart", nullable = false)
+    private Boolean isMultipart;
+
+    @NotNull
+    @Column(name = "is_html", nullable = false)
+    private Boolean isHtml;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private MailStatusEnumeration status;
+
+    @NotNull
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+
+    @NotNull
+    @Column(name = "creation_time", nullable = false)
+    private ZonedDateTime creationTime;
+
+    @NotNull
+    @Column(name = "next_attempt_time", nullable = false)
+    private ZonedDateTime nextAttemptTime;
+
+    @Column(name = "sent_time")
+    private ZonedDateTime sentTime;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Boolean getIsMultipart() {
+        return isMultipart;
+    }
+
+    public void setIsMultipart(Boolean isMultipart) {
+        this.isMultipart = isMultipart;
+    }
+
+    public Boolean getIsHtml() {
+        return isHtml;
+    }
+
+    public void setIsHtml(Boolean isHtml) {
+        this.isHtml = isHtml;
+    }
+
+    public MailStatusEnumeration getStatus() {
+        return status;
+    }
+
+    public void setStatus(MailStatusEnumeration status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public ZonedDateTime getCreationTime() {
+        return creationTime;
+    }
+
+    public void setCreationTime(ZonedDateTime creationTime) {
+        this.creationTime = creationTime;
+    }
+
+    public ZonedDateTime getNextAttemptTime() {
+        return nextAttemptTime;
+    }
+
+    public void setNextAttemptTime(ZonedDateTime nextAttemptTime) {
+        this.nextAttemptTime = nextAttemptTime;
+    }
+
+    public ZonedDateTime getSentTime() {
+        return sentTime;
+    }
+
+    public void setSentTime(ZonedDateTime sentTime) {
+        this.sentTime = sentTime;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        OutboundMail outboundMail = (OutboundMail) o;
+        if (outboundMail.id == null || id == null) {
+            return false;
+        }
+        return Objects.equals(id, outboundMail.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "OutboundMail{" +
+            "id=" + id +
+            ", recipient='" + recipient + "'" +
+            ", subject='" + subject + "'" +
+            ", status='" + status + "'" +
+            ", attempts='" + attempts + "'" +
+            ", nextAttemptTime='" + nextAttemptTime + "'" +
+            '}';
+    }
+}
@@ -1,5 +1,6 @@
 package edu.netcracker.center.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 
@@ -38,6 +39,10 @@ public class Recall implements Serializable {
     
     @Column(name = "file")
     private String file;
+
+    @Column(name = "file_hash", length = 64)
+    @JsonIgnore
+    private String fileHash;
     
     @ManyToOne
     @JoinColumn(name = "student_id")
@@ -87,6 +92,14 @@ public class Recall implements Serializable {
         this.file = file;
     }
 
+    public String getFileHash() {
+        return fileHash;
+    }
+
+    public void setFileHash(String fileHash) {
+        this.fileHash = fileHash;
+    }
+
     public Student getStudent() {
         return student;
     }
@@ -131,6 +144,7 @@ public class Recall implements Serializable {
             ", name='" + name + "'" +
             ", description='" + description + "'" +
             ", file='" + file + "'" +
+            ", fileHash='" + fileHash + "'" +
             '}';
     }
 }
@@ -0,0 +1,83 @@
+package edu.netcracker.center.domain;
+
+import edu.netcracker.center.domain.util.RevisionIndexListener;
+import org.hibernate.envers.RevisionEntity;
+import org.hibernate.envers.RevisionNumber;
+import org.hibernate.envers.RevisionTimestamp;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * A revision of the audited entities.
+ */
+@Entity
+@Table(name = "revinfo")
+@RevisionEntity(RevisionIndexListener.class)
+public class Revision implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @RevisionNumber
+    @Column(name = "rev")
+    private int id;
+
+    @RevisionTimestamp
+    @Column(name = "revtstmp")
+    private long timestamp;
+
+    public Revision() {
+    }
+
+    public Revision(int id, long timestamp) {
+        this.id = id;
+        this.timestamp = timestamp;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    @Transient
+    public Date getRevisionDate() {
+        return new Date(timestamp);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Revision revision = (Revision) o;
+        return id == revision.id && timestamp == revision.timestamp;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "Revision{" +
+            "id=" + id +
+            ", timestamp='" + timestamp + "'" +
+            '}';
+    }
+}
@@ -1,10 +1,14 @@
 package edu.netcracker.center.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import edu.netcracker.center.domain.enumeration.UniversityEnumeration;
+import edu.netcracker.center.domain.util.StudentsSetVersionListener;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.envers.Audited;
 import org.hibernate.envers.NotAudited;
+import org.hibernate.search.annotations.Field;
+import org.hibernate.search.annotations.Indexed;
 import org.hibernate.validator.constraints.Email;
 import org.hibernate.validator.constraints.NotEmpty;
 
@@ -20,6 +24,8 @@ import java.util.Objects;
 @Audited
 @Table(name = "student")
 @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
+@EntityListeners(StudentsSetVersionListener.class)
+@Indexed
 public class Student implements Serializable {
 
     @Id
@@ -28,20 +34,25 @@ public class Student implements Serializable {
 
     @NotEmpty
     @Column(name = "last_name", nullable = false)
+    @Field
     private String lastName;
 
     @Column(name = "first_name")
+    @Field
     private String firstName;
 
     @Column(name = "middle_name")
+    @Field
     private String middleName;
 
     @NotEmpty
     @Column(name = "email", nullable = false)
+    @Field
     @Email
     private String email;
 
     @Column(name = "phone")
+    @Field
     private String phone;
 
     @Enumerated(EnumType.STRING)
@@ -49,9 +60,11 @@ public class Student implements Serializable {
     private UniversityEnumeration university;
 
     @Column(name = "specialty")
+    @Field
     private String specialty;
 
     @Column(name = "faculty")
+    @Field
     private String faculty;
 
     @Column(name = "course")
@@ -101,6 +114,10 @@ public class Student implements Serializable {
     @JoinColumn(name = "learning_type_id")
     private LearningType learningType;
 
+    @Transient
+    @JsonIgnore
+    private Long loadedStudentsSetId;
+
     public Long getId() {
         return id;
     }
@@ -261,6 +278,14 @@ public class Student implements Serializable {
         this.learningType = learningType;
     }
 
+    public Long getLoadedStudentsSetId() {
+        return loadedStudentsSetId;
+    }
+
+    public void setLoadedStudentsSetId(Long loadedStudentsSetId) {
+        this.loadedStudentsSetId = loadedStudentsSetId;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -0,0 +1,92 @@
+package edu.netcracker.center.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+/**
+ * A materialized state of all the students as of an audit revision, its rows are in "student_snapshot_row".
+ */
+@Entity
+@Table(name = "student_snapshot")
+public class StudentSnapshot implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @NotNull
+    @Column(name = "revision", nullable = false)
+    private Integer revision;
+
+    @NotNull
+    @Column(name = "creation_time", nullable = false)
+    private ZonedDateTime creationTime;
+
+    @Column(name = "row_count")
+    private Long rowCount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getRevision() {
+        return revision;
+    }
+
+    public void setRevision(Integer revision) {
+        this.revision = revision;
+    }
+
+    public ZonedDateTime getCreationTime() {
+        return creationTime;
+    }
+
+    public void setCreationTime(ZonedDateTime creationTime) {
+        this.creationTime = creationTime;
+    }
+
+    public Long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(Long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        StudentSnapshot studentSnapshot = (StudentSnapshot) o;
+        if (studentSnapshot.id == null || id == null) {
+            return false;
+        }
+        return Objects.equals(id, studentSnapshot.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "StudentSnapshot{" +
+            "id=" + id +
+            ", revision='" + revision + "'" +
+            ", creationTime='" + creationTime + "'" +
+            ", rowCount='" + rowCount + "'" +
+            '}';
+    }
+}
@@ -0,0 +1,8 @@
+package edu.netcracker.center.domain.enumeration;
+
+/**
+ * The MailStatusEnumeration enumeration.
+ */
+public enum MailStatusEnumeration {
+    PENDING, SENDING, SENT, FAILED
+}
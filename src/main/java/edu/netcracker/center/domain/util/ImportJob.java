@@ -0,0 +1,104 @@
+package edu.netcracker.center.domain.util;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A background import of students and its progress.
+ */
+public class ImportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, FINISHED, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+
+    private final ZonedDateTime creationTime = ZonedDateTime.now();
+
+    private volatile ZonedDateTime finishTime;
+
+    private volatile Status status = Status.QUEUED;
+
+    private final AtomicInteger processed = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private final List<OperationResult> results = new ArrayList<>();
+
+    public String getId() {
+        return id;
+    }
+
+    public ZonedDateTime getCreationTime() {
+        return creationTime;
+    }
+
+    public ZonedDateTime getFinishTime() {
+        return finishTime;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getProcessed() {
+        return processed.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return a copy of the results collected so far
+     */
+    public List<OperationResult> getResults() {
+        synchronized (results) {
+            return new ArrayList<>(results);
+        }
+    }
+
+    public boolean isDone() {
+        return status == Status.FINISHED || status == Status.FAILED;
+    }
+
+    public void start() {
+        status = Status.RUNNING;
+    }
+
+    public void addResults(Collection<OperationResult> chunk, int failedInChunk) {
+        synchronized (results) {
+            results.addAll(chunk);
+        }
+        processed.addAndGet(chunk.size());
+        failed.addAndGet(failedInChunk);
+    }
+
+    public void finish() {
+        finishTime = ZonedDateTime.now();
+        status = Status.FINISHED;
+    }
+
+    public void fail(OperationResult reason) {
+        synchronized (results) {
+            results.add(reason);
+        }
+        finishTime = ZonedDateTime.now();
+        status = Status.FAILED;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportJob{" +
+            "id=" + id +
+            ", status='" + status + "'" +
+            ", processed='" + processed + "'" +
+            ", failed='" + failed + "'" +
+            '}';
+    }
+}
@@ -0,0 +1,118 @@
+package edu.netcracker.center.domain.util;
+
+import edu.netcracker.center.domain.Revision;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * In-memory index of the revisions sorted by timestamp, for resolving a date to a revision without a query.
+ *
+ * <p>
+ * Revisions are almost always added in the order of their timestamps, so adding one is an append. A transaction
+ * committing late is inserted in place. The latest revision as of each entry is kept along, so the revision of
+ * a date is the same as the one of {@code AuditReader.getRevisionNumberForDate}, the greatest revision with
+ * a timestamp not after the date.
+ * </p>
+ */
+public class RevisionIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+
+    private int[] revisions = new int[INITIAL_CAPACITY];
+
+    // greatest revision of the entries up to and including the same position
+    private int[] latestRevisions = new int[INITIAL_CAPACITY];
+
+    private int size;
+
+    private boolean loaded;
+
+    /**
+     * Adds the revision, a revision already in the index is skipped.
+     */
+    public synchronized void add(int revision, long timestamp) {
+        int position = size;
+        while (position > 0 && compare(position - 1, timestamp, revision) > 0) {
+            position--;
+        }
+        if (position > 0 && compare(position - 1, timestamp, revision) == 0) {
+            return;
+        }
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            revisions = Arrays.copyOf(revisions, capacity);
+            latestRevisions = Arrays.copyOf(latestRevisions, capacity);
+        }
+        System.arraycopy(timestamps, position, timestamps, position + 1, size - position);
+        System.arraycopy(revisions, position, revisions, position + 1, size - position);
+        timestamps[position] = timestamp;
+        revisions[position] = revision;
+        size++;
+        for (int i = position; i < size; i++) {
+            latestRevisions[i] = i == 0 ? revisions[i] : Math.max(latestRevisions[i - 1], revisions[i]);
+        }
+    }
+
+    /**
+     * Marks the index as holding all the revisions, once the revisions committed before are added.
+     */
+    public synchronized void setLoaded() {
+        loaded = true;
+    }
+
+    /**
+     * @return true if the index holds all the revisions
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return the greatest revision with a timestamp not after the timestamp, or empty if there is none
+     */
+    public synchronized Optional<Integer> findRevision(long timestamp) {
+        int position = upperBound(timestamp);
+        return position == 0 ? Optional.empty() : Optional.of(latestRevisions[position - 1]);
+    }
+
+    /**
+     * @return at most "limit" revisions with a timestamp in [from, to], skipping the first "offset" of them
+     */
+    public synchronized List<Revision> findRevisions(long from, long to, int offset, int limit) {
+        int start = from == Long.MIN_VALUE ? offset : upperBound(from - 1) + offset;
+        int end = Math.min(upperBound(to), start + limit);
+        List<Revision> result = new ArrayList<>(Math.max(end - start, 0));
+        for (int i = start; i < end; i++) {
+            result.add(new Revision(revisions[i], timestamps[i]));
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of the entries with a timestamp not after the timestamp
+     */
+    private int upperBound(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compare(int position, long timestamp, int revision) {
+        int result = Long.compare(timestamps[position], timestamp);
+        return result != 0 ? result : Integer.compare(revisions[position], revision);
+    }
+}
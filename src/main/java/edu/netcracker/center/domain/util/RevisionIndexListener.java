@@ -0,0 +1,40 @@
+package edu.netcracker.center.domain.util;
+
+import edu.netcracker.center.domain.Revision;
+import org.hibernate.envers.RevisionListener;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Revision listener adding every committed revision to the index of revisions by date.
+ *
+ * <p>
+ * Revisions are added after the commit, so the index never points to a revision rolled back. The number of
+ * the revision is only known once the revision is flushed, so the entity is read after the commit too.
+ * </p>
+ */
+public class RevisionIndexListener implements RevisionListener {
+
+    private static final RevisionIndex index = new RevisionIndex();
+
+    /**
+     * @return the index of the committed revisions
+     */
+    public static RevisionIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    public void newRevision(Object revisionEntity) {
+        Revision revision = (Revision) revisionEntity;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                index.add(revision.getId(), revision.getTimestamp());
+            }
+        });
+    }
+}
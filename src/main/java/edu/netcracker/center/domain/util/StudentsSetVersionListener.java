@@ -0,0 +1,82 @@
+package edu.netcracker.center.domain.util;
+
+import edu.netcracker.center.domain.Student;
+import edu.netcracker.center.domain.StudentsSet;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Entity listener keeping a version stamp per students set, the stamp changes with every change of a student of
+ * the set.
+ *
+ * <p>
+ * Stamps are bumped after the commit, so content read under a new stamp always contains the change. Stamps are
+ * prefixed with the start time of the application and are never reused between runs.
+ * </p>
+ */
+public class StudentsSetVersionListener {
+
+    private static final long EPOCH = System.currentTimeMillis();
+
+    private static final ConcurrentMap<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * @return the current version stamp of the "setId" students set
+     */
+    public static String getVersion(Long setId) {
+        return EPOCH + "." + versions.computeIfAbsent(setId, id -> new AtomicLong()).get();
+    }
+
+    /**
+     * Change the version stamp of the "setId" students set, for changes not going through the entity manager.
+     */
+    public static void bumpAfterCommit(Long setId) {
+        if (setId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    bump(setId);
+                }
+            });
+        } else {
+            bump(setId);
+        }
+    }
+
+    @PostLoad
+    public void onLoad(Student student) {
+        student.setLoadedStudentsSetId(getSetId(student));
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Student student) {
+        // a student moved to another set changes both sets
+        bumpAfterCommit(student.getLoadedStudentsSetId());
+        Long setId = getSetId(student);
+        if (setId != null && !setId.equals(student.getLoadedStudentsSetId())) {
+            bumpAfterCommit(setId);
+        }
+    }
+
+    private static void bump(Long setId) {
+        versions.computeIfAbsent(setId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static Long getSetId(Student student) {
+        return Optional.ofNullable(student.getStudentsSet()).map(StudentsSet::getId).orElse(null);
+    }
+}
@@ -0,0 +1,39 @@
+package edu.netcracker.center.repository;
+
+import edu.netcracker.center.domain.FileBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the FileBlob entity.
+ *
+ * <p>
+ * Reference counts are changed by single update statements, so concurrent changes are never lost.
+ * </p>
+ */
+public interface FileBlobRepository extends JpaRepository<FileBlob, String> {
+
+    @Transactional
+    @Modifying
+    @Query("update FileBlob b set b.refCount = b.refCount + 1, b.releaseTime = null where b.hash = :hash")
+    int retain(@Param("hash") String hash);
+
+    @Transactional
+    @Modifying
+    @Query("update FileBlob b set b.refCount = b.refCount - 1, b.releaseTime = :time " +
+        "where b.hash = :hash and b.refCount > 0")
+    int release(@Param("hash") String hash, @Param("time") ZonedDateTime time);
+
+    @Transactional
+    @Modifying
+    @Query("delete from FileBlob b where b.hash = :hash and b.refCount = 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+
+    List<FileBlob> findByRefCountAndReleaseTimeBefore(Integer refCount, ZonedDateTime time);
+}
@@ -0,0 +1,34 @@
+package edu.netcracker.center.repository;
+
+import edu.netcracker.center.domain.OutboundMail;
+import edu.netcracker.center.domain.enumeration.MailStatusEnumeration;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the OutboundMail entity.
+ */
+public interface OutboundMailRepository extends JpaRepository<OutboundMail, Long> {
+
+    List<OutboundMail> findByStatusAndNextAttemptTimeBeforeOrderByIdAsc(MailStatusEnumeration status,
+                                                                        ZonedDateTime time, Pageable pageable);
+
+    long countByStatus(MailStatusEnumeration status);
+
+    @Modifying
+    @Query("update OutboundMail m set m.status = :to, m.nextAttemptTime = :time " +
+        "where m.id = :id and m.status = :from")
+    int updateStatus(@Param("id") Long id, @Param("from") MailStatusEnumeration from,
+                     @Param("to") MailStatusEnumeration to, @Param("time") ZonedDateTime nextAttemptTime);
+
+    @Modifying
+    @Query("update OutboundMail m set m.status = :to where m.status = :from and m.nextAttemptTime < :time")
+    int updateStatusBefore(@Param("from") MailStatusEnumeration from, @Param("to") MailStatusEnumeration to,
+                           @Param("time") ZonedDateTime time);
+}
@@ -0,0 +1,17 @@
+package edu.netcracker.center.repository;
+
+import edu.netcracker.center.domain.StudentSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Spring Data JPA repository for the StudentSnapshot entity.
+ */
+public interface StudentSnapshotRepository extends JpaRepository<StudentSnapshot, Long> {
+
+    Optional<StudentSnapshot> findFirstByRevisionLessThanEqualOrderByRevisionDesc(Integer revision);
+
+    List<StudentSnapshot> findAllByOrderByRevisionAsc();
+}
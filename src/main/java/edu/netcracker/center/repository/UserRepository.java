@@ -6,6 +6,7 @@ import java.time.ZonedDateTime;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,6 +27,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findOneById(Long userId);
 
+    List<User> findAllByLoginInOrEmailIn(Collection<String> logins, Collection<String> emails);
+
     @Override
     void delete(User t);
 
@@ -3,8 +3,11 @@ package edu.netcracker.center.service;
 import com.mysema.query.types.Predicate;
 import edu.netcracker.center.domain.Curator;
 import edu.netcracker.center.domain.User;
+import edu.netcracker.center.service.util.Keyset;
+import edu.netcracker.center.service.util.KeysetSlice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 /**
  * Service Interface for managing Curator.
@@ -23,6 +26,18 @@ public interface CuratorService {
      */
     public Page<Curator> findAll(Predicate predicate, Pageable pageable);
 
+    /**
+     *  get the "size" curators matching the predicate after the keyset, without counting them.
+     *  @return the keyset page of entities
+     */
+    KeysetSlice<Curator> findAll(Predicate predicate, Keyset keyset, int size);
+
+    /**
+     *  get the slice of the curators matching the predicate, without counting them.
+     *  @return the slice of entities
+     */
+    Slice<Curator> findSlice(Predicate predicate, Pageable pageable);
+
     /**
      *  get the "id" curator.
      *  @return the entity
@@ -0,0 +1,166 @@
+package edu.netcracker.center.service;
+
+import edu.netcracker.center.config.JHipsterProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Service for caching rendered export files in the working directory.
+ * <p/>
+ * <p>
+ * Files are stored by a group, e.g. a students set, and a version of the group content. Storing a new version
+ * removes the older versions of the group, least recently used files are removed when the total size exceeds
+ * "jhipster.integration.exportCacheSize". Removed files are deleted a minute later, so a file handed to
+ * the container to be sent after the request is still there when the container opens it.
+ * </p>
+ */
+@Service
+public class ExportCacheService {
+
+    private final Logger log = LoggerFactory.getLogger(ExportCacheService.class);
+
+    @Inject
+    private FileServerService fileServerService;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    private static final long RETIRE_MILLIS = 60 * 1000;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // removed files with the time they were removed at, oldest first
+    private final Deque<Entry> retired = new ArrayDeque<>();
+
+    private long size;
+
+    private File dir;
+
+    /**
+     * Writes the content of an export to the stream.
+     */
+    @FunctionalInterface
+    public interface Renderer {
+        void render(OutputStream out) throws IOException;
+    }
+
+    @PostConstruct
+    public void init() {
+        dir = new File(fileServerService.getPath(), "exports");
+        if (!dir.exists() && !dir.mkdirs()) {
+            log.error("Cant create directory of exports: {}", dir);
+        }
+        // versions are not kept between runs, so files left by the previous run are never hit
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                deleteFile(file);
+            }
+        }
+    }
+
+    /**
+     * Gets the cached export of the "group" in the "version", the export is rendered on a miss.
+     * <p/>
+     * <p>
+     * The file stays on disk for at least a minute, even if it is removed from the cache meanwhile.
+     * </p>
+     */
+    public File get(String group, String version, Renderer renderer) throws IOException {
+        String key = group + "-" + version;
+        synchronized (entries) {
+            deleteRetired();
+            Entry entry = entries.get(key);
+            if (entry != null && entry.file.exists()) {
+                log.debug("Export cache hit: {}", key);
+                return entry.file;
+            }
+        }
+        log.debug("Export cache miss: {}", key);
+        File file = render(key, renderer);
+        synchronized (entries) {
+            Entry previous = entries.put(key, new Entry(group, file));
+            if (previous != null) {
+                size -= previous.length;
+            }
+            size += file.length();
+            evict(group, key);
+            return file;
+        }
+    }
+
+    private File render(String key, Renderer renderer) throws IOException {
+        File temp = File.createTempFile(key + "-", ".tmp", dir);
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+                renderer.render(out);
+            }
+            File file = new File(dir, key);
+            // readers never see a partially written file
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            deleteFile(temp);
+            throw e;
+        }
+    }
+
+    private void evict(String group, String key) {
+        long capacity = jHipsterProperties.getIntegration().getExportCacheSize();
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> next = iterator.next();
+            Entry entry = next.getValue();
+            boolean stale = entry.group.equals(group) && !next.getKey().equals(key);
+            if (stale || size > capacity && !next.getKey().equals(key)) {
+                iterator.remove();
+                size -= entry.length;
+                entry.retireTime = System.currentTimeMillis();
+                retired.add(entry);
+            }
+        }
+    }
+
+    private void deleteRetired() {
+        long now = System.currentTimeMillis();
+        while (!retired.isEmpty() && now - retired.peek().retireTime >= RETIRE_MILLIS) {
+            Entry entry = retired.poll();
+            // a newer render of the same key may have replaced the file meanwhile
+            if (!entries.containsKey(entry.file.getName())) {
+                deleteFile(entry.file);
+            }
+        }
+    }
+
+    private void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            log.warn("Cant delete cached export: {}", file);
+        }
+    }
+
+    private static class Entry {
+
+        private final String group;
+
+        private final File file;
+
+        private final long length;
+
+        private long retireTime;
+
+        Entry(String group, File file) {
+            this.group = group;
+            this.file = file;
+            this.length = file.length();
+        }
+    }
+}
@@ -1,5 +1,59 @@
 package edu.netcracker.center.service;
 
+import edu.netcracker.center.domain.FileBlob;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Service Interface for storing files in the working directory.
+ *
+ * <p>
+ * Files are stored by the SHA-256 hash of their content, so identical files are stored once. Every {@link #put}
+ * adds a reference to the content and every {@link #delete} releases one, unreferenced content is removed by
+ * a background garbage collection.
+ * </p>
+ */
 public interface FileServerService {
+
+    /**
+     * @return the working directory
+     */
     String getPath();
+
+    /**
+     * Store the content read in a single pass and add a reference to it, the stream is not closed. The reference
+     * is committed on return, see {@link #releaseOnRollback}.
+     *
+     * @return the hash of the content
+     */
+    String put(InputStream in) throws IOException;
+
+    /**
+     * Release a reference to the content of the "hash" if the current transaction rolls back, so the content put
+     * for an entity is not leaked when saving the entity fails.
+     */
+    void releaseOnRollback(String hash);
+
+    /**
+     * @return the file with the content of the "hash"
+     */
+    Optional<File> get(String hash);
+
+    /**
+     * @return the stored content of the "hash"
+     */
+    Optional<FileBlob> stat(String hash);
+
+    /**
+     * Release a reference to the content of the "hash".
+     */
+    void delete(String hash);
+
+    /**
+     * Remove the content which is unreferenced for longer than the grace period.
+     */
+    void collectGarbage();
 }
@@ -18,6 +18,18 @@ public interface FormService {
      */
     public Form save(Form form);
 
+    /**
+     * Save a form with the file put before, releasing the previous file.
+     * @return the persisted entity
+     */
+    public Form saveFile(Form form, String fileName, String hash);
+
+    /**
+     * Save the file put before for the "id" form, releasing the previous file.
+     * @return the persisted entity, or null if there is no such form
+     */
+    public Form saveFile(Long id, String fileName, String hash);
+
     /**
      *  get all the forms.
      *  @return the list of entities
@@ -1,16 +1,29 @@
 package edu.netcracker.center.service;
 
 import edu.netcracker.center.domain.Student;
+import edu.netcracker.center.web.rest.dto.StudentDiffDTO;
+import org.springframework.data.domain.Slice;
 
 import java.util.Date;
-import java.util.List;
+import java.util.function.Consumer;
 
 public interface HistoryService {
 
     /**
-     * get history of students by date.
+     * get a slice of history of students by date, with an id after "lastId", or from the first if it is null.
      *
-     * @return the list of entities
+     * @return the slice of entities ordered by id
      */
-    public List<Student> getHistoryOfStudents(Date date);
+    public Slice<Student> getHistoryOfStudents(Date date, Long lastId, int size);
+
+    /**
+     * pass the history of students by date to the consumer one by one, ordered by id, without loading them all.
+     */
+    public void forEachHistoryOfStudents(Date date, Consumer<Student> consumer);
+
+    /**
+     * pass the changes of the students between the dates to the consumer one by one, ordered by id, with only
+     * the changed fields.
+     */
+    public void forEachDiffOfStudents(Date from, Date to, Consumer<StudentDiffDTO> consumer);
 }
@@ -0,0 +1,130 @@
+package edu.netcracker.center.service;
+
+import edu.netcracker.center.config.JHipsterProperties;
+import edu.netcracker.center.domain.util.ImportJob;
+import edu.netcracker.center.domain.util.OperationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+/**
+ * Service for running imports of students in background.
+ * <p/>
+ * <p>
+ * Jobs are executed by the async task executor and kept in memory for progress polling. Only the last
+ * "jhipster.integration.jobsCapacity" jobs are kept, finished jobs are evicted first, and a new import is rejected
+ * when all of the kept jobs are not finished.
+ * </p>
+ */
+@Service
+public class ImportJobService {
+
+    private final Logger log = LoggerFactory.getLogger(ImportJobService.class);
+
+    @Inject
+    private ImportService importService;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    @Named("taskExecutor")
+    private Executor taskExecutor;
+
+    private final Map<String, ImportJob> jobs = new LinkedHashMap<>();
+
+    /**
+     * Submit the import of students from the file, the file is copied, so it may be released by the caller.
+     *
+     * @return the queued job, or a failed one if the import is rejected
+     */
+    public ImportJob submitImportOfStudents(MultipartFile file, Long setId) throws IOException {
+        ImportJob job = new ImportJob();
+        if (!store(job)) {
+            log.warn("Import of Students rejected, {} imports are not finished",
+                jHipsterProperties.getIntegration().getJobsCapacity());
+            job.fail(new OperationResult("1", "Сервер перегружен, повторите импорт позже",
+                "Слишком много незавершенных импортов"));
+            return job;
+        }
+        // the upload is removed at the end of the request, so it is moved to a file owned by the job
+        File tempFile = File.createTempFile("students-import-", ".tmp");
+        try {
+            file.transferTo(tempFile);
+        } catch (IOException e) {
+            job.fail(new OperationResult("1", "Неудалось прочитать файл", e.getMessage()));
+            deleteFile(tempFile);
+            throw e;
+        }
+        log.debug("Submit import of Students for set: {}, job: {}", setId, job.getId());
+        try {
+            taskExecutor.execute(() -> run(job, tempFile, setId));
+        } catch (TaskRejectedException e) {
+            log.error("Import of Students rejected by executor", e);
+            job.fail(new OperationResult("1", "Сервер перегружен, повторите импорт позже", e.getMessage()));
+            deleteFile(tempFile);
+        }
+        return job;
+    }
+
+    public Optional<ImportJob> findOne(String id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+
+    private void run(ImportJob job, File file, Long setId) {
+        job.start();
+        try {
+            importService.importStudents(file, setId, job);
+            job.finish();
+            log.debug("Import of Students finished: {}", job);
+        } catch (IOException e) {
+            log.error("Cant import file of Students", e);
+            job.fail(new OperationResult("1", "Неудалось прочитать файл", e.getMessage()));
+        } catch (RuntimeException e) {
+            log.error("Cant import Students", e);
+            job.fail(new OperationResult("1", "Неудалось сохранить студентов", e.getMessage()));
+        } finally {
+            deleteFile(file);
+        }
+    }
+
+    /**
+     * @return true if the job is stored, or false if all the kept jobs are not finished
+     */
+    private boolean store(ImportJob job) {
+        synchronized (jobs) {
+            int capacity = jHipsterProperties.getIntegration().getJobsCapacity();
+            Iterator<ImportJob> iterator = jobs.values().iterator();
+            while (jobs.size() >= capacity && iterator.hasNext()) {
+                if (iterator.next().isDone()) {
+                    iterator.remove();
+                }
+            }
+            if (jobs.size() >= capacity) {
+                return false;
+            }
+            jobs.put(job.getId(), job);
+            return true;
+        }
+    }
+
+    private void deleteFile(File file) {
+        if (!file.delete()) {
+            log.warn("Cant delete temporary file of import: {}", file);
+        }
+    }
+}
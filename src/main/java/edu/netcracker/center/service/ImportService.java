@@ -1,11 +1,14 @@
 package edu.netcracker.center.service;
 
-import edu.netcracker.center.domain.util.OperationResult;
-import org.springframework.web.multipart.MultipartFile;
+import edu.netcracker.center.domain.util.ImportJob;
 
-import java.util.Collection;
+import java.io.File;
+import java.io.IOException;
 
 public interface ImportService {
 
-    Collection<OperationResult> handleImportOfStudents(MultipartFile file, Long id);
+    /**
+     * import students from the XLS or XLSX file, reporting the progress to the job.
+     */
+    void importStudents(File file, Long setId, ImportJob job) throws IOException;
 }
@@ -0,0 +1,217 @@
+package edu.netcracker.center.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import edu.netcracker.center.config.JHipsterProperties;
+import edu.netcracker.center.domain.OutboundMail;
+import edu.netcracker.center.domain.enumeration.MailStatusEnumeration;
+import edu.netcracker.center.repository.OutboundMailRepository;
+import org.apache.commons.lang.CharEncoding;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * Service for sending the e-mails of the outbox.
+ * <p/>
+ * <p>
+ * Due e-mails are sent in batches of "jhipster.mail.batchSize" over one SMTP connection. Failed e-mails are retried
+ * after "jhipster.mail.retryDelay" seconds, doubled with every attempt, and given up after
+ * "jhipster.mail.maxAttempts" attempts.
+ * </p>
+ * <p>
+ * Due e-mails are claimed as SENDING in a short transaction, sent outside of any transaction, and their outcome is
+ * saved in a second short transaction. A claim not completed within 10 minutes, e.g. when the application stops
+ * while sending, is given back to the outbox, so such an e-mail may be sent twice.
+ * </p>
+ */
+@Service
+public class MailOutboxService {
+
+    private final Logger log = LoggerFactory.getLogger(MailOutboxService.class);
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private static final int CLAIM_MINUTES = 10;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private JavaMailSenderImpl javaMailSender;
+
+    @Inject
+    private OutboundMailRepository outboundMailRepository;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Meter sentMeter;
+
+    private Meter failedMeter;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        sentMeter = metricRegistry.meter(MetricRegistry.name(MailOutboxService.class, "sent"));
+        failedMeter = metricRegistry.meter(MetricRegistry.name(MailOutboxService.class, "failed"));
+        metricRegistry.register(MetricRegistry.name(MailOutboxService.class, "backlog"),
+            (Gauge<Long>) () -> outboundMailRepository.countByStatus(MailStatusEnumeration.PENDING));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        metricRegistry.removeMatching((name, metric) -> name.startsWith(MailOutboxService.class.getName()));
+    }
+
+    /**
+     * Send the due e-mails of the outbox.
+     * <p/>
+     * <p>
+     * This is scheduled to get fired 5 seconds after the previous run.
+     * </p>
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void dispatch() {
+        List<OutboundMail> batch = transactionTemplate.execute(status -> claim());
+        if (batch.isEmpty()) {
+            return;
+        }
+        log.debug("Sending {} e-mails of the outbox", batch.size());
+        Map<MimeMessage, OutboundMail> messages = new LinkedHashMap<>();
+        for (OutboundMail mail : batch) {
+            try {
+                messages.put(createMessage(mail), mail);
+            } catch (MessagingException e) {
+                log.warn("E-mail could not be prepared for user '{}', exception is: {}", mail.getRecipient(),
+                    e.getMessage());
+                giveUp(mail, e);
+            }
+        }
+
+        Map<Object, Exception> failed = Collections.emptyMap();
+        if (messages.isEmpty()) {
+            save(batch);
+            return;
+        }
+        try {
+            // one connection is opened for the whole batch
+            javaMailSender.send(messages.keySet().toArray(new MimeMessage[messages.size()]));
+        } catch (MailSendException e) {
+            failed = e.getFailedMessages();
+            if (failed.isEmpty()) {
+                failed = failAll(messages.keySet(), e);
+            }
+        } catch (MailException e) {
+            failed = failAll(messages.keySet(), e);
+        }
+
+        ZonedDateTime now = ZonedDateTime.now();
+        for (Map.Entry<MimeMessage, OutboundMail> entry : messages.entrySet()) {
+            OutboundMail mail = entry.getValue();
+            Exception error = failed.get(entry.getKey());
+            if (error == null) {
+                mail.setStatus(MailStatusEnumeration.SENT);
+                mail.setSentTime(now);
+                mail.setAttempts(mail.getAttempts() + 1);
+                sentMeter.mark();
+            } else {
+                log.warn("E-mail could not be sent to user '{}', exception is: {}", mail.getRecipient(),
+                    error.getMessage());
+                retry(mail, error, now);
+            }
+        }
+        save(batch);
+    }
+
+    /**
+     * Claims the due e-mails, so they are not sent by another run meanwhile.
+     *
+     * @return the claimed e-mails
+     */
+    private List<OutboundMail> claim() {
+        ZonedDateTime now = ZonedDateTime.now();
+        int expired = outboundMailRepository.updateStatusBefore(MailStatusEnumeration.SENDING,
+            MailStatusEnumeration.PENDING, now);
+        if (expired > 0) {
+            log.warn("Giving back {} e-mails claimed for longer than {} minutes", expired, CLAIM_MINUTES);
+        }
+        List<OutboundMail> due = outboundMailRepository.findByStatusAndNextAttemptTimeBeforeOrderByIdAsc(
+            MailStatusEnumeration.PENDING, now, new PageRequest(0, jHipsterProperties.getMail().getBatchSize()));
+        List<OutboundMail> claimed = new ArrayList<>(due.size());
+        ZonedDateTime claimTime = now.plusMinutes(CLAIM_MINUTES);
+        for (OutboundMail mail : due) {
+            // an e-mail claimed concurrently is left to the other run
+            if (outboundMailRepository.updateStatus(mail.getId(), MailStatusEnumeration.PENDING,
+                MailStatusEnumeration.SENDING, claimTime) > 0) {
+                claimed.add(mail);
+            }
+        }
+        return claimed;
+    }
+
+    private void save(List<OutboundMail> batch) {
+        transactionTemplate.execute(status -> outboundMailRepository.save(batch));
+    }
+
+    private MimeMessage createMessage(OutboundMail mail) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper message = new MimeMessageHelper(mimeMessage, mail.getIsMultipart(), CharEncoding.UTF_8);
+        message.setTo(mail.getRecipient());
+        message.setFrom(jHipsterProperties.getMail().getFrom());
+        message.setSubject(mail.getSubject());
+        message.setText(mail.getContent(), mail.getIsHtml());
+        return mimeMessage;
+    }
+
+    private void retry(OutboundMail mail, Exception error, ZonedDateTime now) {
+        int attempts = mail.getAttempts() + 1;
+        mail.setAttempts(attempts);
+        mail.setLastError(StringUtils.abbreviate(error.getMessage(), MAX_ERROR_LENGTH));
+        failedMeter.mark();
+        if (attempts >= jHipsterProperties.getMail().getMaxAttempts()) {
+            mail.setStatus(MailStatusEnumeration.FAILED);
+            log.error("Giving up e-mail to user '{}' after {} attempts", mail.getRecipient(), attempts);
+            return;
+        }
+        long delay = jHipsterProperties.getMail().getRetryDelay() << Math.min(attempts - 1, 16);
+        mail.setStatus(MailStatusEnumeration.PENDING);
+        mail.setNextAttemptTime(now.plusSeconds(delay));
+    }
+
+    private void giveUp(OutboundMail mail, Exception error) {
+        mail.setAttempts(mail.getAttempts() + 1);
+        mail.setLastError(StringUtils.abbreviate(error.getMessage(), MAX_ERROR_LENGTH));
+        mail.setStatus(MailStatusEnumeration.FAILED);
+        failedMeter.mark();
+    }
+
+    private Map<Object, Exception> failAll(Collection<MimeMessage> messages, Exception error) {
+        Map<Object, Exception> failed = new IdentityHashMap<>();
+        messages.forEach(message -> failed.put(message, error));
+        return failed;
+    }
+}
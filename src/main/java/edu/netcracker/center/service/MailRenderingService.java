@@ -0,0 +1,164 @@
+package edu.netcracker.center.service;
+
+import edu.netcracker.center.domain.User;
+import org.apache.commons.lang.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring4.SpringTemplateEngine;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service for rendering e-mails of users.
+ * <p/>
+ * <p>
+ * Every template is processed once per locale with markers in place of the fields of the recipient, the result and
+ * the subject are cached, so rendering an e-mail only fills the escaped fields in. Templates may print the fields of
+ * the "user", "baseUrl" and "name" variables, but must not branch on them.
+ * </p>
+ */
+@Service
+public class MailRenderingService {
+
+    private final Logger log = LoggerFactory.getLogger(MailRenderingService.class);
+
+    private static final String MARKER = "@@";
+    // link expressions accept only absolute bases outside of a web context
+    private static final String URL_MARKER = "marker://";
+    private static final Pattern MARKER_PATTERN =
+        Pattern.compile("(?:" + URL_MARKER + ")?" + MARKER + "([a-zA-Z.]+)" + MARKER);
+
+    private static final String LOGIN = "user.login";
+    private static final String FIRST_NAME = "user.firstName";
+    private static final String LAST_NAME = "user.lastName";
+    private static final String EMAIL = "user.email";
+    private static final String ACTIVATION_KEY = "user.activationKey";
+    private static final String RESET_KEY = "user.resetKey";
+    private static final String BASE_URL = "baseUrl";
+    private static final String NAME = "name";
+
+    private final SpringTemplateEngine templateEngine;
+
+    private final MessageSource messageSource;
+
+    private final ConcurrentMap<String, CompiledMail> compiledMails = new ConcurrentHashMap<>();
+
+    @Inject
+    public MailRenderingService(SpringTemplateEngine templateEngine,
+                                @Named("messageSource") MessageSource messageSource) {
+        this.templateEngine = templateEngine;
+        this.messageSource = messageSource;
+    }
+
+    /**
+     * Render the "template" e-mail with the "subjectKey" subject for the user, in the language of the user.
+     */
+    public RenderedMail render(String template, String subjectKey, User user, String baseUrl) {
+        Locale locale = Locale.forLanguageTag(user.getLangKey());
+        CompiledMail compiled = compiledMails.computeIfAbsent(template + "|" + subjectKey + "|" + locale,
+            key -> compile(template, subjectKey, locale));
+
+        Map<String, String> fields = new HashMap<>();
+        fields.put(LOGIN, user.getLogin());
+        fields.put(FIRST_NAME, user.getFirstName());
+        fields.put(LAST_NAME, user.getLastName());
+        fields.put(EMAIL, user.getEmail());
+        fields.put(ACTIVATION_KEY, user.getActivationKey());
+        fields.put(RESET_KEY, user.getResetKey());
+        fields.put(BASE_URL, baseUrl);
+        fields.put(NAME, user.getLastName() + " " + ObjectUtils.toString(user.getFirstName(), ""));
+        return new RenderedMail(compiled.subject, compiled.fill(fields));
+    }
+
+    private CompiledMail compile(String template, String subjectKey, Locale locale) {
+        log.debug("Compiling e-mail template '{}' for locale '{}'", template, locale);
+        User user = new User();
+        user.setLogin(mark(LOGIN));
+        user.setFirstName(mark(FIRST_NAME));
+        user.setLastName(mark(LAST_NAME));
+        user.setEmail(mark(EMAIL));
+        user.setActivationKey(mark(ACTIVATION_KEY));
+        user.setResetKey(mark(RESET_KEY));
+        Context context = new Context(locale);
+        context.setVariable("user", user);
+        context.setVariable(BASE_URL, URL_MARKER + mark(BASE_URL));
+        context.setVariable(NAME, mark(NAME));
+        String content = templateEngine.process(template, context);
+        String subject = messageSource.getMessage(subjectKey, null, locale);
+        return new CompiledMail(subject, content);
+    }
+
+    private static String mark(String field) {
+        return MARKER + field + MARKER;
+    }
+
+    /**
+     * A template processed with markers, split into literal parts and the fields between them.
+     */
+    private static class CompiledMail {
+
+        private final String subject;
+
+        private final List<String> literals = new ArrayList<>();
+
+        private final List<String> fields = new ArrayList<>();
+
+        private final int length;
+
+        CompiledMail(String subject, String content) {
+            this.subject = subject;
+            Matcher matcher = MARKER_PATTERN.matcher(content);
+            int start = 0;
+            while (matcher.find()) {
+                literals.add(content.substring(start, matcher.start()));
+                fields.add(matcher.group(1));
+                start = matcher.end();
+            }
+            literals.add(content.substring(start));
+            this.length = content.length();
+        }
+
+        String fill(Map<String, String> values) {
+            StringBuilder content = new StringBuilder(length);
+            for (int i = 0; i < fields.size(); i++) {
+                content.append(literals.get(i));
+                // the same escaping as th:text and attributes
+                content.append(HtmlUtils.htmlEscape(ObjectUtils.toString(values.get(fields.get(i))), "UTF-8"));
+            }
+            return content.append(literals.get(fields.size())).toString();
+        }
+    }
+
+    /**
+     * The subject and the content of a rendered e-mail.
+     */
+    public static class RenderedMail {
+
+        private final String subject;
+
+        private final String content;
+
+        RenderedMail(String subject, String content) {
+            this.subject = subject;
+            this.content = content;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getContent() {
+            return content;
+        }
+    }
+}
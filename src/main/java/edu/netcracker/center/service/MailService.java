@@ -1,111 +1,82 @@
 package edu.netcracker.center.service;
 
-import edu.netcracker.center.config.JHipsterProperties;
+import edu.netcracker.center.domain.OutboundMail;
 import edu.netcracker.center.domain.User;
+import edu.netcracker.center.domain.enumeration.MailStatusEnumeration;
+import edu.netcracker.center.repository.OutboundMailRepository;
 
-import org.apache.commons.lang.CharEncoding;
-import org.apache.commons.lang.ObjectUtils;
-import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.MessageSource;
-import org.springframework.mail.javamail.JavaMailSenderImpl;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.context.Context;
-import org.thymeleaf.spring4.SpringTemplateEngine;
-
-
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.inject.Inject;
-import javax.mail.internet.MimeMessage;
-import java.util.Locale;
+import java.time.ZonedDateTime;
 
 /**
  * Service for sending e-mails.
  * <p/>
  * <p>
- * We use the @Async annotation to send e-mails asynchronously.
+ * E-mails are rendered and put into the outbox in the transaction of the caller, so an e-mail is queued only if
+ * the change it tells about is committed, and a failure to queue it fails the caller. Queued e-mails are kept in
+ * the outbox until they are sent.
  * </p>
  */
 @Service
+@Transactional
 public class MailService {
 
     private final Logger log = LoggerFactory.getLogger(MailService.class);
 
     @Inject
-    private JHipsterProperties jHipsterProperties;
-
-    @Inject
-    private JavaMailSenderImpl javaMailSender;
-
-    @Inject
-    private MessageSource messageSource;
+    private OutboundMailRepository outboundMailRepository;
 
     @Inject
-    private SpringTemplateEngine templateEngine;
+    private MailRenderingService mailRenderingService;
 
     /**
      * System default email address that sends the e-mails.
      */
     private String from;
 
-    @Async
+    /**
+     * Put the e-mail into the outbox, it is sent by {@link MailOutboxService}.
+     */
     public void sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
-        log.debug("Send e-mail[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
+        log.debug("Queue e-mail[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
             isMultipart, isHtml, to, subject, content);
 
-        // Prepare message using a Spring helper
-        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        try {
-            MimeMessageHelper message = new MimeMessageHelper(mimeMessage, isMultipart, CharEncoding.UTF_8);
-            message.setTo(to);
-            message.setFrom(jHipsterProperties.getMail().getFrom());
-            message.setSubject(subject);
-            message.setText(content, isHtml);
-            javaMailSender.send(mimeMessage);
-            log.debug("Sent e-mail to User '{}'", to);
-        } catch (Exception e) {
-            log.warn("E-mail could not be sent to user '{}', exception is: {}", to, e.getMessage());
-        }
+        ZonedDateTime now = ZonedDateTime.now();
+        OutboundMail mail = new OutboundMail();
+        mail.setRecipient(to);
+        mail.setSubject(subject);
+        mail.setContent(content);
+        mail.setIsMultipart(isMultipart);
+        mail.setIsHtml(isHtml);
+        mail.setStatus(MailStatusEnumeration.PENDING);
+        mail.setAttempts(0);
+        mail.setCreationTime(now);
+        mail.setNextAttemptTime(now);
+        outboundMailRepository.save(mail);
     }
 
-    @Async
     public void sendActivationEmail(User user, String baseUrl) {
         log.debug("Sending activation e-mail to '{}'", user.getEmail());
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
-        Context context = new Context(locale);
-        context.setVariable("user", user);
-        context.setVariable("baseUrl", baseUrl);
-        String content = templateEngine.process("activationEmail", context);
-        String subject = messageSource.getMessage("email.activation.title", null, locale);
-        sendEmail(user.getEmail(), subject, content, false, true);
+        sendEmail(user, mailRenderingService.render("activationEmail", "email.activation.title", user, baseUrl));
     }
 
-    @Async
     public void sendCreationEmail(User user, String baseUrl) {
         log.debug("Sending creation e-mail to '{}'", user.getEmail());
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
-        Context context = new Context(locale);
-        context.setVariable("user", user);
-        context.setVariable("baseUrl", baseUrl);
-        context.setVariable("name", user.getLastName() + " " + ObjectUtils.toString(user.getFirstName(), ""));
-        String content = templateEngine.process("creationEmail", context);
-        String subject = messageSource.getMessage("email.activation.title", null, locale);
-        sendEmail(user.getEmail(), subject, content, false, true);
+        sendEmail(user, mailRenderingService.render("creationEmail", "email.activation.title", user, baseUrl));
     }
 
-    @Async
     public void sendPasswordResetMail(User user, String baseUrl) {
         log.debug("Sending password reset e-mail to '{}'", user.getEmail());
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
-        Context context = new Context(locale);
-        context.setVariable("user", user);
-        context.setVariable("baseUrl", baseUrl);
-        String content = templateEngine.process("passwordResetEmail", context);
-        String subject = messageSource.getMessage("email.reset.title", null, locale);
-        sendEmail(user.getEmail(), subject, content, false, true);
+        sendEmail(user, mailRenderingService.render("passwordResetEmail", "email.reset.title", user, baseUrl));
+    }
+
+    private void sendEmail(User user, MailRenderingService.RenderedMail mail) {
+        sendEmail(user.getEmail(), mail.getSubject(), mail.getContent(), false, true);
     }
 
 }
@@ -0,0 +1,42 @@
+package edu.netcracker.center.service;
+
+import com.mysema.query.jpa.impl.JPAQuery;
+import com.mysema.query.types.Predicate;
+import com.mysema.query.types.path.EntityPathBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+/**
+ * Service for counting the totals of the paged listings.
+ * <p/>
+ * <p>
+ * Counts are cached for "jhipster.cache.countTimeToLiveSeconds" by entity and predicate, so paging through a
+ * listing counts its rows once. Totals may lag behind the data by that long.
+ * </p>
+ */
+@Service
+@Transactional(readOnly = true)
+public class PaginationCountService {
+
+    public static final String CACHE = "paginationCounts";
+
+    private final Logger log = LoggerFactory.getLogger(PaginationCountService.class);
+
+    @Inject
+    private EntityManager entityManager;
+
+    /**
+     * @return the number of the entities matching the predicate
+     */
+    @Cacheable(value = CACHE, key = "#p0.type.name + ':' + #p1")
+    public long count(EntityPathBase<?> entity, Predicate predicate) {
+        log.debug("Counting {} by predicate: {}", entity.getType().getSimpleName(), predicate);
+        return new JPAQuery(entityManager).from(entity).where(predicate).count();
+    }
+}
@@ -0,0 +1,87 @@
+package edu.netcracker.center.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service for encoding passwords.
+ * <p/>
+ * <p>
+ * BCrypt is CPU bound, so passwords are encoded on a fixed pool sized to the cores instead of the calling thread.
+ * Bulk callers overlap encodings across the cores, while HTTP threads never compete with more encodings than there
+ * are cores. The queue depth and the encoding time are published as metrics.
+ * </p>
+ */
+@Service
+public class PasswordHashingService {
+
+    private final Logger log = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    @Inject
+    private PasswordEncoder passwordEncoder;
+
+    @Inject
+    private MetricRegistry metricRegistry;
+
+    private ThreadPoolExecutor pool;
+
+    private Timer encodeTimer;
+
+    @PostConstruct
+    public void init() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        log.debug("Creating password hashing pool of {} threads", threads);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("password-hashing-");
+        threadFactory.setDaemon(true);
+        pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            threadFactory);
+        encodeTimer = metricRegistry.timer(MetricRegistry.name(PasswordHashingService.class, "encode"));
+        metricRegistry.register(MetricRegistry.name(PasswordHashingService.class, "queue"),
+            (Gauge<Integer>) () -> pool.getQueue().size());
+        metricRegistry.register(MetricRegistry.name(PasswordHashingService.class, "active"),
+            (Gauge<Integer>) pool::getActiveCount);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        pool.shutdown();
+        metricRegistry.removeMatching((name, metric) -> name.startsWith(PasswordHashingService.class.getName()));
+    }
+
+    /**
+     * Encode the password on the hashing pool.
+     *
+     * @return the future of the encoded password
+     */
+    public CompletableFuture<String> encodeAsync(String rawPassword) {
+        return CompletableFuture.supplyAsync(() -> {
+            Timer.Context context = encodeTimer.time();
+            try {
+                return passwordEncoder.encode(rawPassword);
+            } finally {
+                context.stop();
+            }
+        }, pool);
+    }
+
+    /**
+     * Encode the password on the hashing pool, waiting for the result.
+     */
+    public String encode(String rawPassword) {
+        return encodeAsync(rawPassword).join();
+    }
+}
@@ -0,0 +1,163 @@
+package edu.netcracker.center.service;
+
+import com.mysema.query.jpa.impl.JPAQuery;
+import edu.netcracker.center.domain.QCurator;
+import edu.netcracker.center.domain.QStudent;
+import edu.netcracker.center.domain.User;
+import edu.netcracker.center.repository.UserRepository;
+import edu.netcracker.center.security.SecurityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Service for resolving the current user to the ids of the user, and of the curator or the student of the user.
+ * <p/>
+ * <p>
+ * Contexts are cached by login, so requests of a logged in user skip looking up the user and the curator or the
+ * student. The least recently used contexts are dropped over {@link #MAX_CONTEXTS}. Contexts are evicted after the
+ * commit of any change of the user, or of the link between users and curators or students. Every eviction bumps
+ * a generation, and a context resolved while the generation changed is not cached, as it may be resolved from the
+ * data as of before the eviction.
+ * </p>
+ */
+@Service
+@Transactional(readOnly = true)
+public class PrincipalContextService {
+
+    private final Logger log = LoggerFactory.getLogger(PrincipalContextService.class);
+
+    private static final int MAX_CONTEXTS = 1000;
+
+    @Inject
+    private UserRepository userRepository;
+
+    @Inject
+    private EntityManager entityManager;
+
+    private final Map<String, PrincipalContext> contexts = new LinkedHashMap<String, PrincipalContext>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PrincipalContext> eldest) {
+            return size() > MAX_CONTEXTS;
+        }
+    };
+
+    // guarded by contexts
+    private long generation;
+
+    /**
+     * @return the context of the current user, or empty if there is no such user
+     */
+    public Optional<PrincipalContext> getCurrent() {
+        String login = SecurityUtils.getCurrentUserLogin();
+        if (login == null) {
+            return Optional.empty();
+        }
+        long resolvedGeneration;
+        synchronized (contexts) {
+            PrincipalContext context = contexts.get(login);
+            if (context != null) {
+                return Optional.of(context);
+            }
+            resolvedGeneration = generation;
+        }
+        Optional<PrincipalContext> resolved = userRepository.findOneByLogin(login).map(this::resolve);
+        resolved.ifPresent(context -> {
+            synchronized (contexts) {
+                if (generation == resolvedGeneration) {
+                    contexts.put(login, context);
+                }
+            }
+        });
+        return resolved;
+    }
+
+    /**
+     * Evicts the context of the login once the current transaction commits.
+     */
+    public void evict(String login) {
+        afterCommit(() -> {
+            synchronized (contexts) {
+                generation++;
+                contexts.remove(login);
+            }
+        });
+    }
+
+    /**
+     * Evicts all the contexts once the current transaction commits.
+     */
+    public void evictAll() {
+        afterCommit(() -> {
+            synchronized (contexts) {
+                generation++;
+                contexts.clear();
+            }
+        });
+    }
+
+    private PrincipalContext resolve(User user) {
+        log.debug("Resolving context of user: {}", user.getLogin());
+        QCurator curator = QCurator.curator;
+        QStudent student = QStudent.student;
+        Long curatorId = new JPAQuery(entityManager).from(curator)
+            .where(curator.user.id.eq(user.getId()))
+            .uniqueResult(curator.id);
+        Long studentId = new JPAQuery(entityManager).from(student)
+            .where(student.user.id.eq(user.getId()))
+            .uniqueResult(student.id);
+        return new PrincipalContext(user.getId(), curatorId, studentId);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * The ids of a user, and of the curator or the student of the user if any.
+     */
+    public static class PrincipalContext {
+
+        private final Long userId;
+
+        private final Long curatorId;
+
+        private final Long studentId;
+
+        PrincipalContext(Long userId, Long curatorId, Long studentId) {
+            this.userId = userId;
+            this.curatorId = curatorId;
+            this.studentId = studentId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public Long getCuratorId() {
+            return curatorId;
+        }
+
+        public Long getStudentId() {
+            return studentId;
+        }
+    }
+}
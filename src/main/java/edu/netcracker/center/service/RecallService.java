@@ -18,6 +18,12 @@ public interface RecallService {
      */
     public Recall save(Recall recall);
 
+    /**
+     * Save the file put before for the "id" recall, releasing the previous file.
+     * @return the persisted entity, or null if there is no such recall
+     */
+    public Recall saveFile(Long id, String fileName, String hash);
+
     /**
      *  get all the recalls.
      *  @return the list of entities
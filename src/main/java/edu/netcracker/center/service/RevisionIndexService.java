@@ -0,0 +1,100 @@
+package edu.netcracker.center.service;
+
+import com.mysema.query.Tuple;
+import com.mysema.query.jpa.impl.JPAQuery;
+import com.mysema.util.CloseableIterator;
+import edu.netcracker.center.domain.QRevision;
+import edu.netcracker.center.domain.Revision;
+import edu.netcracker.center.domain.util.RevisionIndex;
+import edu.netcracker.center.domain.util.RevisionIndexListener;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.envers.AuditReaderFactory;
+import org.hibernate.envers.exception.RevisionDoesNotExistException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service for resolving dates to audit revisions.
+ * <p/>
+ * <p>
+ * All the revisions are loaded in memory when the application starts, and the committed ones are added by
+ * {@link RevisionIndexListener}, so a date is resolved by a binary search instead of a query of "revinfo". Until
+ * the index is loaded dates are resolved by Envers.
+ * </p>
+ */
+@Service
+@Transactional(readOnly = true)
+public class RevisionIndexService {
+
+    private final Logger log = LoggerFactory.getLogger(RevisionIndexService.class);
+
+    private static final int FETCH_SIZE = 1000;
+
+    @Inject
+    private EntityManager entityManager;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void load() {
+        RevisionIndex index = RevisionIndexListener.getIndex();
+        if (index.isLoaded()) {
+            return;
+        }
+        QRevision revision = QRevision.revision;
+        CloseableIterator<Tuple> iterator = new JPAQuery(entityManager).from(revision)
+            .orderBy(revision.timestamp.asc(), revision.id.asc())
+            .setHint(QueryHints.FETCH_SIZE, FETCH_SIZE)
+            .iterate(revision.id, revision.timestamp);
+        try {
+            while (iterator.hasNext()) {
+                Tuple tuple = iterator.next();
+                index.add(tuple.get(revision.id), tuple.get(revision.timestamp));
+            }
+        } finally {
+            iterator.close();
+        }
+        index.setLoaded();
+        log.info("Loaded the index of revisions");
+    }
+
+    /**
+     * @return the greatest revision committed not after the date, or empty if there is none
+     */
+    public Optional<Integer> getRevisionNumberForDate(Date date) {
+        RevisionIndex index = RevisionIndexListener.getIndex();
+        if (index.isLoaded()) {
+            return index.findRevision(date.getTime());
+        }
+        try {
+            return Optional.of(AuditReaderFactory.get(entityManager).getRevisionNumberForDate(date).intValue());
+        } catch (RevisionDoesNotExistException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return the slice of the revisions committed in [from, to], ordered by date
+     */
+    public Slice<Revision> getRevisions(Date from, Date to, Pageable pageable) {
+        log.debug("Request to get a slice of revisions from {} to {}", from, to);
+        // one more revision is read to tell if there is a next slice
+        List<Revision> revisions = RevisionIndexListener.getIndex().findRevisions(
+            from == null ? Long.MIN_VALUE : from.getTime(), to == null ? Long.MAX_VALUE : to.getTime(),
+            pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = revisions.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? revisions.subList(0, pageable.getPageSize()) : revisions, pageable,
+            hasNext);
+    }
+}
@@ -0,0 +1,55 @@
+package edu.netcracker.center.service;
+
+import edu.netcracker.center.domain.Student;
+import org.apache.lucene.index.IndexReader;
+import org.hibernate.search.indexes.IndexReaderAccessor;
+import org.hibernate.search.jpa.FullTextEntityManager;
+import org.hibernate.search.jpa.Search;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Service for the full-text index of the students.
+ * <p/>
+ * <p>
+ * The index lives in "hibernate.search.default.indexBase" and is kept in sync by Hibernate Search on every commit.
+ * It is built in the background when the application starts with an empty index, e.g. on a new instance.
+ * </p>
+ */
+@Service
+public class SearchIndexService {
+
+    private final Logger log = LoggerFactory.getLogger(SearchIndexService.class);
+
+    @Inject
+    private EntityManagerFactory entityManagerFactory;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void buildIfEmpty() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(entityManager);
+            IndexReaderAccessor accessor = fullTextEntityManager.getSearchFactory().getIndexReaderAccessor();
+            IndexReader reader = accessor.open(Student.class);
+            int documents;
+            try {
+                documents = reader.numDocs();
+            } finally {
+                accessor.close(reader);
+            }
+            if (documents == 0) {
+                log.info("Building the search index of students");
+                fullTextEntityManager.createIndexer(Student.class).start();
+            }
+        } finally {
+            entityManager.close();
+        }
+    }
+}
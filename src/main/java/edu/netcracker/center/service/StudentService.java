@@ -1,15 +1,21 @@
 package edu.netcracker.center.service;
 
 import com.mysema.query.types.Predicate;
-import edu.netcracker.center.domain.Curator;
 import edu.netcracker.center.domain.Student;
 import edu.netcracker.center.domain.User;
+import edu.netcracker.center.domain.enumeration.TypeOfResult;
 import edu.netcracker.center.domain.util.OperationResult;
+import edu.netcracker.center.service.util.Keyset;
+import edu.netcracker.center.service.util.KeysetSlice;
+import edu.netcracker.center.web.rest.dto.ArchiveResultDTO;
+import edu.netcracker.center.web.rest.dto.StudentExportDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service Interface for managing Student.
@@ -40,12 +46,36 @@ public interface StudentService {
      */
     public Page<Student> findAll(Predicate predicate, Pageable pageable);
 
+    /**
+     *  get the slice of the students matching the predicate, without counting them.
+     *  @return the slice of entities
+     */
+    Slice<Student> findSlice(Predicate predicate, Pageable pageable);
+
+    /**
+     *  get the "size" students matching the predicate after the keyset, without counting them.
+     *  @return the keyset page of entities
+     */
+    KeysetSlice<Student> findAll(Predicate predicate, Keyset keyset, int size);
+
+    /**
+     *  search the students by the words of the query in their names, contacts and education.
+     *  @return the page of entities in the order of relevance
+     */
+    Page<Student> search(String query, Pageable pageable);
+
     /**
      *  get all the students.
      *  @return the list of entities
      */
     public List<Student> findAll();
 
+    /**
+     *  pass the export rows of the students matching the predicate to the consumer one by one,
+     *  without loading them all.
+     */
+    void forEachExportRow(Predicate predicate, Consumer<StudentExportDTO> consumer);
+
     /**
      *  get the "id" student.
      *  @return the entity
@@ -73,9 +103,29 @@ public interface StudentService {
     Student unzip(Long id);
 
     /**
-     *  find students by curator.
+     *  archive the active students of the "studentsSetId" set, or of the "groupOfStudentId" group, at once.
+     */
+    ArchiveResultDTO archiveAll(Long studentsSetId, Long groupOfStudentId, TypeOfResult type, String description);
+
+    /**
+     *  unzip the archived students of the "studentsSetId" set, or of the "groupOfStudentId" group, at once.
+     */
+    ArchiveResultDTO unzipAll(Long studentsSetId, Long groupOfStudentId);
+
+    /**
+     *  find the active students of the "curatorId" curator.
+     */
+    Page<Student> findByCurator(Long curatorId, Pageable pageable);
+
+    /**
+     *  find the "size" students of the curator after the keyset, without counting them.
+     */
+    KeysetSlice<Student> findByCurator(Long curatorId, Keyset keyset, int size);
+
+    /**
+     *  find the slice of the students of the curator, without counting them.
      */
-    Page<Student> findByCurator(Curator curator, Pageable pageable);
+    Slice<Student> findSliceByCurator(Long curatorId, Pageable pageable);
 
     Student findByUser(User user);
 }
@@ -0,0 +1,244 @@
+package edu.netcracker.center.service;
+
+import edu.netcracker.center.domain.Student;
+import edu.netcracker.center.domain.StudentSnapshot;
+import edu.netcracker.center.domain.enumeration.UniversityEnumeration;
+import edu.netcracker.center.repository.StudentSnapshotRepository;
+import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Service for the materialized states of the students, used to read the history of students.
+ * <p/>
+ * <p>
+ * A snapshot keeps the audited columns of every not deleted student as of an audit revision. The state as of a later
+ * revision is the nearest snapshot with the students changed after it replaced by their latest audit rows, so only
+ * the audit rows after the snapshot are read. Snapshots are taken a few minutes behind the latest revision, so
+ * a transaction committing late with an earlier revision is not missed.
+ * </p>
+ */
+@Service
+@Transactional
+public class StudentSnapshotService {
+
+    private final Logger log = LoggerFactory.getLogger(StudentSnapshotService.class);
+
+    private static final int SETTLE_MINUTES = 5;
+
+    private static final int DAILY_SNAPSHOT_DAYS = 30;
+
+    private static final int FETCH_SIZE = 100;
+
+    public static final String AUDITED_COLUMNS = "course, email, first_name, last_name, middle_name, phone, " +
+        "specialty, university, faculty, is_active, got_job, comment";
+
+    // latest audit rows of the students changed in (from, to], the deleted ones are skipped
+    private static final String CHANGED_ROWS = " from student_aud a where a.rev > :from and a.rev <= :to" +
+        " and a.revtype <> 2" +
+        " and a.rev = (select max(b.rev) from student_aud b where b.id = a.id and b.rev > :from and b.rev <= :to)";
+
+    // rows of the snapshot of the students not changed in (from, to]
+    private static final String UNCHANGED_ROWS = " from student_snapshot_row r where r.snapshot_id = :snapshot" +
+        " and not exists (select b.id from student_aud b where b.id = r.student_id and b.rev > :from" +
+        " and b.rev <= :to)";
+
+    @Inject
+    private EntityManager entityManager;
+
+    @Inject
+    private StudentSnapshotRepository studentSnapshotRepository;
+
+    @Inject
+    private RevisionIndexService revisionIndexService;
+
+    /**
+     * @return the slice of the audited state of the students with an id after "lastId" as of the revision, ordered
+     * by id, or of the first students if "lastId" is null
+     */
+    @Transactional(readOnly = true)
+    public Slice<Student> getStudents(int revision, Long lastId, int size) {
+        log.debug("Request to get a slice of Students as of revision : {} after id : {}", revision, lastId);
+        Optional<StudentSnapshot> snapshot = studentSnapshotRepository
+            .findFirstByRevisionLessThanEqualOrderByRevisionDesc(revision);
+        // both parts are sought from the last id and limited on their own, so neither is read and sorted whole;
+        // one more row is read to tell if there is a next slice
+        Query query = entityManager.createNativeQuery(
+            "(select a.id, " + columns("a") + CHANGED_ROWS + " and a.id > :lastId order by a.id limit :limit)" +
+                " union all (select r.student_id, " + columns("r") + UNCHANGED_ROWS +
+                " and r.student_id > :lastId order by r.student_id limit :limit)" +
+                " order by 1");
+        bind(query, snapshot, revision);
+        query.setParameter("lastId", lastId == null ? 0L : lastId);
+        query.setParameter("limit", size + 1);
+        List<Object[]> rows = query.setMaxResults(size + 1).getResultList();
+        List<Student> content = rows.stream()
+            .limit(size)
+            .map(this::toStudent)
+            .collect(Collectors.toList());
+        return new SliceImpl<>(content, new PageRequest(0, size), rows.size() > size);
+    }
+
+    /**
+     * Passes the audited state of the students as of the revision to the consumer one by one, ordered by id,
+     * without loading them all. On MySQL the rows are streamed only with "useCursorFetch=true" in the URL.
+     */
+    @Transactional(readOnly = true)
+    public void forEachStudent(int revision, Consumer<Student> consumer) {
+        log.debug("Request to stream Students as of revision : {}", revision);
+        ScrollableResults results = createStateQuery(revision).unwrap(SQLQuery.class)
+            .setFetchSize(FETCH_SIZE)
+            .setReadOnly(true)
+            .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                consumer.accept(toStudent(results.get()));
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    /**
+     * Takes the snapshot of the students as of the latest settled revision.
+     *
+     * @return the snapshot, or empty if there is no revision yet
+     */
+    public Optional<StudentSnapshot> create() {
+        Optional<Integer> settled = revisionIndexService.getRevisionNumberForDate(
+            Date.from(Instant.now().minusSeconds(SETTLE_MINUTES * 60)));
+        if (!settled.isPresent()) {
+            log.debug("Cant take a snapshot of Students before the first revision");
+            return Optional.empty();
+        }
+        return Optional.of(create(settled.get()));
+    }
+
+    /**
+     * Takes the snapshot of the students as of the revision, the revision must be settled.
+     *
+     * @return the snapshot, or the one already taken as of the revision
+     */
+    public StudentSnapshot create(int revision) {
+        Optional<StudentSnapshot> previous = studentSnapshotRepository
+            .findFirstByRevisionLessThanEqualOrderByRevisionDesc(revision);
+        if (previous.isPresent() && previous.get().getRevision() == revision) {
+            return previous.get();
+        }
+        StudentSnapshot snapshot = new StudentSnapshot();
+        snapshot.setRevision(revision);
+        snapshot.setCreationTime(ZonedDateTime.now());
+        studentSnapshotRepository.saveAndFlush(snapshot);
+        String insert = "insert into student_snapshot_row (snapshot_id, student_id, " + AUDITED_COLUMNS + ")";
+        Query changed = createUpdate(insert + " select :target, a.id, " + columns("a") + CHANGED_ROWS);
+        Query unchanged = createUpdate(insert + " select :target, r.student_id, " + columns("r") + UNCHANGED_ROWS);
+        long rowCount = 0;
+        for (Query query : Arrays.asList(changed, unchanged)) {
+            bind(query, previous, revision);
+            query.setParameter("target", snapshot.getId());
+            rowCount += query.executeUpdate();
+        }
+        snapshot.setRowCount(rowCount);
+        log.debug("Created snapshot of Students: {}", snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Daily snapshots are kept for 30 days, the first snapshot of every month is kept after that.
+     * <p/>
+     * <p>
+     * This is scheduled to get fired everyday, at 02:30 (am).
+     * </p>
+     */
+    @Scheduled(cron = "0 30 2 * * ?")
+    public void createAndPrune() {
+        create();
+        ZonedDateTime dailyFrom = ZonedDateTime.now().minusDays(DAILY_SNAPSHOT_DAYS);
+        Set<YearMonth> months = new HashSet<>();
+        for (StudentSnapshot snapshot : studentSnapshotRepository.findAllByOrderByRevisionAsc()) {
+            if (months.add(YearMonth.from(snapshot.getCreationTime())) ||
+                snapshot.getCreationTime().isAfter(dailyFrom)) {
+                continue;
+            }
+            log.debug("Deleting snapshot of Students: {}", snapshot);
+            createUpdate("delete from student_snapshot_row where snapshot_id = :target")
+                .setParameter("target", snapshot.getId())
+                .executeUpdate();
+            studentSnapshotRepository.delete(snapshot);
+        }
+    }
+
+    private Query createStateQuery(int revision) {
+        Optional<StudentSnapshot> snapshot = studentSnapshotRepository
+            .findFirstByRevisionLessThanEqualOrderByRevisionDesc(revision);
+        Query query = entityManager.createNativeQuery(
+            "select a.id, " + columns("a") + CHANGED_ROWS +
+                " union all select r.student_id, " + columns("r") + UNCHANGED_ROWS +
+                " order by 1");
+        bind(query, snapshot, revision);
+        return query;
+    }
+
+    private void bind(Query query, Optional<StudentSnapshot> snapshot, int revision) {
+        // without a snapshot the state is replayed from the first revision
+        query.setParameter("snapshot", snapshot.map(StudentSnapshot::getId).orElse(-1L));
+        query.setParameter("from", snapshot.map(StudentSnapshot::getRevision).orElse(0));
+        query.setParameter("to", revision);
+    }
+
+    private Query createUpdate(String sql) {
+        Query query = entityManager.createNativeQuery(sql);
+        // only the snapshot rows are changed, the second level cache of the entities is kept
+        query.unwrap(SQLQuery.class).addSynchronizedQuerySpace("student_snapshot_row");
+        return query;
+    }
+
+    private String columns(String alias) {
+        return Arrays.stream(AUDITED_COLUMNS.split(", "))
+            .map(column -> alias + "." + column)
+            .collect(Collectors.joining(", "));
+    }
+
+    private Student toStudent(Object[] row) {
+        Student student = new Student();
+        student.setId(((Number) row[0]).longValue());
+        student.setCourse((String) row[1]);
+        student.setEmail((String) row[2]);
+        student.setFirstName((String) row[3]);
+        student.setLastName((String) row[4]);
+        student.setMiddleName((String) row[5]);
+        student.setPhone((String) row[6]);
+        student.setSpecialty((String) row[7]);
+        student.setUniversity(row[8] == null ? null : UniversityEnumeration.valueOf((String) row[8]));
+        student.setFaculty((String) row[9]);
+        student.setIsActive(toBoolean(row[10]));
+        student.setGotJob(toBoolean(row[11]));
+        student.setComment((String) row[12]);
+        return student;
+    }
+
+    private Boolean toBoolean(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue() != 0;
+        }
+        return (Boolean) value;
+    }
+}
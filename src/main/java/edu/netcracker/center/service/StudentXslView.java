@@ -1,23 +1,32 @@
 package edu.netcracker.center.service;
 
-import edu.netcracker.center.domain.Student;
+import com.mysema.query.types.Predicate;
+import edu.netcracker.center.web.rest.dto.StudentExportDTO;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.poi.hssf.usermodel.HSSFFont;
 import org.apache.poi.hssf.util.HSSFColor;
 import org.apache.poi.ss.usermodel.*;
-import org.springframework.web.servlet.view.document.AbstractXlsView;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.web.servlet.view.document.AbstractXlsxStreamingView;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Map;
-import java.util.Set;
 
 /**
+ * Streaming XLSX view of the students matching the "predicate" of the model.
  *
+ * <p>
+ * Students are read as flat rows of one scrolled query, which joins the related entities, and written into a
+ * {@link SXSSFWorkbook}, which keeps only a window of rows in memory and flushes the rest to a temporary file,
+ * so heap use does not depend on the number of students.
+ * </p>
  */
-public class StudentXslView extends AbstractXlsView {
+public class StudentXslView extends AbstractXlsxStreamingView {
 
     public static final int ID = 0;
     public static final int LAST_NAME = 1;
@@ -35,6 +44,21 @@ public class StudentXslView extends AbstractXlsView {
     public static final int GROUP = 13;
     public static final int SET = 14;
 
+    private static final int ROW_ACCESS_WINDOW = 100;
+
+    private final StudentService studentService;
+
+    public StudentXslView(StudentService studentService) {
+        this.studentService = studentService;
+    }
+
+    @Override
+    protected SXSSFWorkbook createWorkbook(Map<String, Object> model, HttpServletRequest request) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
     @Override
     protected void buildExcelDocument(Map<String, Object> model,
                                       Workbook workbook,
@@ -43,45 +67,61 @@ public class StudentXslView extends AbstractXlsView {
 
         String currentDate = new SimpleDateFormat("yyyy-MM-dd-HH:mm:ss").format(new Date());
         response.setHeader("Content-Type", "application/octet-stream");
-        response.setHeader("Content-Disposition", "attachment; filename=Students_" + currentDate + ".xls");
+        response.setHeader("Content-Disposition", "attachment; filename=" + getFileName(model) + "_" +
+            currentDate + ".xlsx");
 
-        Set<Student> students = (Set<Student>) model.get("students");
+        generateWorkbook((Predicate) model.get("predicate"), workbook);
+    }
+
+    /**
+     * Writes the XLSX of the students matching the "predicate" to the stream, outside of a web request.
+     */
+    public void write(Predicate predicate, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = createWorkbook(null, null);
+        try {
+            generateWorkbook(predicate, workbook);
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+        }
+    }
 
-        generateWorkbook(students, workbook);
+    protected String getFileName(Map<String, Object> model) {
+        return "Students";
     }
 
-    protected void generateWorkbook(Set<Student> students, Workbook workbook) {
+    protected void generateWorkbook(Predicate predicate, Workbook workbook) {
         Sheet sheet = createSheet(workbook);
 
         CellStyle headerStyle = createHeaderStyle(workbook);
 
         createHeader(sheet, headerStyle);
 
-        completeTable(students, sheet);
+        completeTable(predicate, sheet);
     }
 
-    private void completeTable(Set<Student> students, Sheet sheet) {
-        int counter = 1;
-        for (Student student : students) {
-            Row row = sheet.createRow(counter++);
-            setCellValueAndStyle(row.createCell(ID), student.getId().toString(), null);
-            setCellValueAndStyle(row.createCell(LAST_NAME), student.getLastName(), null);
-            setCellValueAndStyle(row.createCell(FIRST_NAME), student.getFirstName(), null);
-            setCellValueAndStyle(row.createCell(MIDDLE_NAME), student.getMiddleName(), null);
-            setCellValueAndStyle(row.createCell(EMAIL), student.getEmail(), null);
-            setCellValueAndStyle(row.createCell(PHONE), student.getPhone(), null);
-            setCellValueAndStyle(row.createCell(TYPE), student.getLearningType().getName(), null);
-            setCellValueAndStyle(row.createCell(UNIVERSITY), ObjectUtils.toString(student.getUniversity()), null);
-            setCellValueAndStyle(row.createCell(SPECIALTY), student.getSpecialty(), null);
-            setCellValueAndStyle(row.createCell(FACULTY), student.getFaculty(), null);
-            setCellValueAndStyle(row.createCell(COURSE), student.getCourse(), null);
-            setCellValueAndStyle(row.createCell(CURATOR), student.getCurator().getLastName(), null);
-            setCellValueAndStyle(row.createCell(COMMENT), student.getComment(), null);
-            setCellValueAndStyle(row.createCell(GROUP), student.getGroupOfStudent().getName(), null);
-            setCellValueAndStyle(row.createCell(SET), student.getStudentsSet().getName(), null);
-        }
+    private void completeTable(Predicate predicate, Sheet sheet) {
+        int[] counter = {1};
+        studentService.forEachExportRow(predicate, student -> completeRow(student, sheet.createRow(counter[0]++)));
     }
 
+    private void completeRow(StudentExportDTO student, Row row) {
+        setCellValueAndStyle(row.createCell(ID), student.getId().toString(), null);
+        setCellValueAndStyle(row.createCell(LAST_NAME), student.getLastName(), null);
+        setCellValueAndStyle(row.createCell(FIRST_NAME), student.getFirstName(), null);
+        setCellValueAndStyle(row.createCell(MIDDLE_NAME), student.getMiddleName(), null);
+        setCellValueAndStyle(row.createCell(EMAIL), student.getEmail(), null);
+        setCellValueAndStyle(row.createCell(PHONE), student.getPhone(), null);
+        setCellValueAndStyle(row.createCell(TYPE), student.getLearningType(), null);
+        setCellValueAndStyle(row.createCell(UNIVERSITY), ObjectUtils.toString(student.getUniversity()), null);
+        setCellValueAndStyle(row.createCell(SPECIALTY), student.getSpecialty(), null);
+        setCellValueAndStyle(row.createCell(FACULTY), student.getFaculty(), null);
+        setCellValueAndStyle(row.createCell(COURSE), student.getCourse(), null);
+        setCellValueAndStyle(row.createCell(CURATOR), student.getCurator(), null);
+        setCellValueAndStyle(row.createCell(COMMENT), student.getComment(), null);
+        setCellValueAndStyle(row.createCell(GROUP), student.getGroupOfStudent(), null);
+        setCellValueAndStyle(row.createCell(SET), student.getStudentsSet(), null);
+    }
     private void createHeader(Sheet sheet, CellStyle style) {
         Row header = sheet.createRow(0);
 
@@ -12,7 +12,6 @@ import edu.netcracker.center.web.rest.dto.ManagedUserDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,6 +22,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
  * Service class for managing users.
@@ -34,7 +35,10 @@ public class UserService {
     private final Logger log = LoggerFactory.getLogger(UserService.class);
 
     @Inject
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+
+    @Inject
+    private PrincipalContextService principalContextService;
 
     @Inject
     private UserRepository userRepository;
@@ -51,6 +55,7 @@ public class UserService {
     @Inject
     CuratorRepository curatorRepository;
 
+
     public Optional<User> activateRegistration(String key) {
         log.debug("Activating user for activation key {}", key);
         userRepository.findOneByActivationKey(key)
@@ -74,7 +79,7 @@ public class UserService {
                 return user.getResetDate().isAfter(oneDayAgo);
             })
             .map(user -> {
-                user.setPassword(passwordEncoder.encode(newPassword));
+                user.setPassword(passwordHashingService.encode(newPassword));
                 user.setResetKey(null);
                 user.setResetDate(null);
                 userRepository.save(user);
@@ -99,7 +104,7 @@ public class UserService {
         User newUser = new User();
         Authority authority = authorityRepository.findOne("ROLE_USER");
         Set<Authority> authorities = new HashSet<>();
-        String encryptedPassword = passwordEncoder.encode(password);
+        String encryptedPassword = passwordHashingService.encode(password);
         newUser.setLogin(login);
         // new user gets initially a generated password
         newUser.setPassword(encryptedPassword);
@@ -120,20 +125,40 @@ public class UserService {
 
     public User createUserForEC(String firstName, String lastName, String email, Set<Authority> authorities) {
         User user = new User();
-        String encryptedPassword = passwordEncoder.encode(RandomUtil.generatePassword());
-        user.setLogin(email);
         user.setFirstName(firstName);
         user.setLastName(lastName);
         user.setEmail(email);
+        initUserForEC(user, authorities, passwordHashingService.encode(RandomUtil.generatePassword()));
+        userRepository.save(user);
+        log.debug("Created Information for EC's User: {}", user);
+        return user;
+    }
+
+    /**
+     * Create EC's users of the given names and emails together, passwords are encoded in parallel.
+     *
+     * @return the saved users in the same order
+     */
+    public List<User> createUsersForEC(List<User> users, Set<Authority> authorities) {
+        List<CompletableFuture<String>> passwords = users.stream()
+            .map(user -> passwordHashingService.encodeAsync(RandomUtil.generatePassword()))
+            .collect(Collectors.toList());
+        for (int i = 0; i < users.size(); i++) {
+            initUserForEC(users.get(i), authorities, passwords.get(i).join());
+        }
+        List<User> result = userRepository.save(users);
+        log.debug("Created Information for {} EC's Users", result.size());
+        return result;
+    }
+
+    private void initUserForEC(User user, Set<Authority> authorities, String encryptedPassword) {
+        user.setLogin(user.getEmail());
         user.setLangKey("ru");
         user.setAuthorities(authorities);
         user.setPassword(encryptedPassword);
         user.setResetKey(RandomUtil.generateResetKey());
         user.setResetDate(ZonedDateTime.now());
         user.setActivated(true);
-        userRepository.save(user);
-        log.debug("Created Information for EC's User: {}", user);
-        return user;
     }
 
     public User createUser(ManagedUserDTO managedUserDTO) {
@@ -154,7 +179,7 @@ public class UserService {
             );
             user.setAuthorities(authorities);
         }
-        String encryptedPassword = passwordEncoder.encode(RandomUtil.generatePassword());
+        String encryptedPassword = passwordHashingService.encode(RandomUtil.generatePassword());
         user.setPassword(encryptedPassword);
         user.setResetKey(RandomUtil.generateResetKey());
         user.setResetDate(ZonedDateTime.now());
@@ -171,6 +196,7 @@ public class UserService {
             u.setEmail(email);
             u.setLangKey(langKey);
             userRepository.save(u);
+            principalContextService.evict(u.getLogin());
             log.debug("Changed Information for User: {}", u);
         });
     }
@@ -185,7 +211,7 @@ public class UserService {
 
     public void changePassword(String password) {
         userRepository.findOneByLogin(SecurityUtils.getCurrentUser().getUsername()).ifPresent(u -> {
-            String encryptedPassword = passwordEncoder.encode(password);
+            String encryptedPassword = passwordHashingService.encode(password);
             u.setPassword(encryptedPassword);
             userRepository.save(u);
             log.debug("Changed password for User: {}", u);
@@ -252,6 +278,7 @@ public class UserService {
     }
 
     private void removeRelationOnUser(User user) {
+        principalContextService.evict(user.getLogin());
         Predicate studentPredicate = QStudent.student.user.eq(user);
         Optional.ofNullable(studentRepository.findOne(studentPredicate)).ifPresent(student -> {
                 student.setUser(null);
@@ -9,15 +9,23 @@ import edu.netcracker.center.security.AuthoritiesConstants;
 import edu.netcracker.center.service.CuratorService;
 import edu.netcracker.center.repository.CuratorRepository;
 import edu.netcracker.center.service.MailService;
+import edu.netcracker.center.service.PaginationCountService;
+import edu.netcracker.center.service.PrincipalContextService;
 import edu.netcracker.center.service.UserService;
+import edu.netcracker.center.service.util.Keyset;
+import edu.netcracker.center.service.util.KeysetQueryUtil;
+import edu.netcracker.center.service.util.KeysetSlice;
+import edu.netcracker.center.service.util.PageQueryUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
@@ -43,14 +51,25 @@ public class CuratorServiceImpl implements CuratorService {
 
     private final AuthorityRepository authorityRepository;
 
+    private final EntityManager entityManager;
+
+    private final PaginationCountService paginationCountService;
+
+    private final PrincipalContextService principalContextService;
+
     @Inject
     public CuratorServiceImpl(UserRepository userRepository, CuratorRepository curatorRepository,
-                              MailService mailService, UserService userService, AuthorityRepository authorityRepository) {
+                              MailService mailService, UserService userService, AuthorityRepository authorityRepository,
+                              EntityManager entityManager, PaginationCountService paginationCountService,
+                              PrincipalContextService principalContextService) {
         this.userRepository = userRepository;
         this.curatorRepository = curatorRepository;
         this.mailService = mailService;
         this.userService = userService;
         this.authorityRepository = authorityRepository;
+        this.entityManager = entityManager;
+        this.paginationCountService = paginationCountService;
+        this.principalContextService = principalContextService;
     }
 
     /**
@@ -60,7 +79,11 @@ public class CuratorServiceImpl implements CuratorService {
      */
     public Curator save(Curator curator) {
         log.debug("Request to save Curator : {}", curator);
+        // the user of the curator may be relinked, both the previous and the new user are evicted
+        Optional.ofNullable(curator.getId()).map(curatorRepository::findOne).map(Curator::getUser)
+            .ifPresent(user -> principalContextService.evict(user.getLogin()));
         Curator result = curatorRepository.save(curator);
+        Optional.ofNullable(result.getUser()).ifPresent(user -> principalContextService.evict(user.getLogin()));
         return result;
     }
 
@@ -78,6 +101,7 @@ public class CuratorServiceImpl implements CuratorService {
                     return user;
                 });
         curator.setUser(result);
+        principalContextService.evict(result.getLogin());
         return curatorRepository.save(curator);
     }
 
@@ -103,10 +127,33 @@ public class CuratorServiceImpl implements CuratorService {
     @Transactional(readOnly = true)
     public Page<Curator> findAll(Predicate predicate, Pageable pageable) {
         log.debug("Request to get all Curators");
-        Page<Curator> result = curatorRepository.findAll(predicate, pageable);
+        Page<Curator> result = PageQueryUtil.findPage(entityManager, QCurator.curator, predicate, pageable,
+            () -> paginationCountService.count(QCurator.curator, predicate));
         return result;
     }
 
+    /**
+     * get the slice of the curators.
+     *
+     * @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Curator> findSlice(Predicate predicate, Pageable pageable) {
+        log.debug("Request to get a slice of Curators");
+        return PageQueryUtil.findSlice(entityManager, QCurator.curator, predicate, pageable);
+    }
+
+    /**
+     * get the curators by predicate after the keyset.
+     *
+     * @return the keyset page of entities
+     */
+    @Transactional(readOnly = true)
+    public KeysetSlice<Curator> findAll(Predicate predicate, Keyset keyset, int size) {
+        log.debug("Request to get Curators after keyset");
+        return KeysetQueryUtil.findSlice(entityManager, QCurator.curator, predicate, keyset, size);
+    }
+
     /**
      * get one curator by id.
      *
@@ -130,6 +177,7 @@ public class CuratorServiceImpl implements CuratorService {
         curator.getRecalls().clear();
         curator.getStudents().forEach(student -> student.setCurator(null));
         curator.getStudents().clear();
+        Optional.ofNullable(curator.getUser()).ifPresent(user -> principalContextService.evict(user.getLogin()));
         curatorRepository.delete(curator);
     }
 
@@ -1,36 +1,249 @@
 package edu.netcracker.center.service.impl;
 
 import edu.netcracker.center.config.JHipsterProperties;
+import edu.netcracker.center.domain.FileBlob;
+import edu.netcracker.center.repository.FileBlobRepository;
 import edu.netcracker.center.service.FileServerService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
 
+/**
+ * Service Implementation for storing files in the working directory.
+ *
+ * <p>
+ * Content is stored in "blobs/{first two chars of the hash}/{hash}". Reference counts are kept in the database and
+ * changed in their own transactions, an insert of a new content racing with another one is retried as an increment.
+ * Changes of files are serialized by a lock, which assumes a single application instance per working directory.
+ * </p>
+ */
 @Service
 public class FileServerServiceImpl implements FileServerService {
 
     private final Logger log = LoggerFactory.getLogger(FileServerServiceImpl.class);
 
+    private static final String BLOBS_PATH = "blobs";
+    private static final String TEMP_PATH = "tmp";
+    private static final long GC_GRACE_HOURS = 24;
+    private static final int RETAIN_ATTEMPTS = 3;
+
     @Inject
     private JHipsterProperties jHipsterProperties;
 
+    @Inject
+    private FileBlobRepository fileBlobRepository;
+
+    @Inject
+    private EntityManager entityManager;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final Object lock = new Object();
+
     private String path = "";
 
+    private File blobs;
+
+    private File temp;
+
     @PostConstruct
     public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // references are committed independently of the transaction of the caller
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
         File dir = new File(jHipsterProperties.getWorkdir().getPath());
         path = dir.getAbsolutePath();
         log.debug("Check working directory: {}", path);
         if (!dir.exists()) {
             log.info("Created working directory: {}, path {}", dir.mkdir(), dir.getAbsolutePath());
         }
+        blobs = new File(dir, BLOBS_PATH);
+        temp = new File(blobs, TEMP_PATH);
+        if (!temp.exists()) {
+            log.info("Created blobs directory: {}, path {}", temp.mkdirs(), blobs.getAbsolutePath());
+        }
+        // files of puts interrupted by the previous run
+        File[] files = temp.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                deleteFile(file);
+            }
+        }
     }
 
     public String getPath() {
         return path;
     }
+
+    public String put(InputStream in) throws IOException {
+        MessageDigest digest = createDigest();
+        File tempFile = File.createTempFile("upload-", ".tmp", temp);
+        try {
+            // the content is hashed while written next to its final location, which is known only at the end
+            long size = Files.copy(new DigestInputStream(in, digest), tempFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+            String hash = toHex(digest.digest());
+            synchronized (lock) {
+                File file = getFile(hash);
+                if (file.exists()) {
+                    log.debug("Stored content is referenced again: {}", hash);
+                    deleteFile(tempFile);
+                } else {
+                    move(tempFile, file);
+                }
+                // committed before the lock is released, so the garbage collection never deletes a referenced file
+                retain(hash, size);
+            }
+            return hash;
+        } catch (IOException | RuntimeException e) {
+            deleteFile(tempFile);
+            throw e;
+        }
+    }
+
+    public void releaseOnRollback(String hash) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("No transaction to release the content on rollback: " + hash);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    transactionTemplate.execute(transactionStatus -> {
+                        delete(hash);
+                        return null;
+                    });
+                }
+            }
+        });
+    }
+
+    public Optional<File> get(String hash) {
+        File file = getFile(hash);
+        return file.isFile() ? Optional.of(file) : Optional.empty();
+    }
+
+    public Optional<FileBlob> stat(String hash) {
+        return Optional.ofNullable(fileBlobRepository.findOne(hash));
+    }
+
+    public void delete(String hash) {
+        log.debug("Release stored content: {}", hash);
+        if (fileBlobRepository.release(hash, ZonedDateTime.now()) == 0) {
+            log.warn("Released content is not referenced: {}", hash);
+        }
+    }
+
+    /**
+     * Unreferenced content is removed after a grace period, so a release followed by a put of the same content
+     * does not rewrite it.
+     * <p/>
+     * <p>
+     * This is scheduled to get fired everyday, at 03:00 (am).
+     * </p>
+     */
+    @Scheduled(cron = "0 0 3 * * ?")
+    public void collectGarbage() {
+        List<FileBlob> unreferenced = fileBlobRepository.findByRefCountAndReleaseTimeBefore(0,
+            ZonedDateTime.now().minusHours(GC_GRACE_HOURS));
+        for (FileBlob blob : unreferenced) {
+            synchronized (lock) {
+                if (fileBlobRepository.deleteIfUnreferenced(blob.getHash()) > 0) {
+                    log.debug("Deleting unreferenced content: {}", blob);
+                    deleteFile(getFile(blob.getHash()));
+                }
+            }
+        }
+    }
+
+    private void move(File tempFile, File file) throws IOException {
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cant create directory: " + dir);
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Increments the reference count of the content, or inserts it with a single reference.
+     */
+    private void retain(String hash, long size) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.execute(status -> {
+                    if (fileBlobRepository.retain(hash) == 0) {
+                        FileBlob blob = new FileBlob();
+                        blob.setHash(hash);
+                        blob.setSize(size);
+                        blob.setRefCount(1);
+                        blob.setCreationTime(ZonedDateTime.now());
+                        // a plain insert, which fails instead of overwriting a row inserted concurrently
+                        entityManager.persist(blob);
+                        entityManager.flush();
+                        log.debug("Stored content: {}", blob);
+                    }
+                    return null;
+                });
+                return;
+            } catch (DataIntegrityViolationException | PersistenceException e) {
+                if (attempt == RETAIN_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Content is inserted concurrently, retrying: {}", hash);
+            }
+        }
+    }
+
+    private File getFile(String hash) {
+        return new File(new File(blobs, hash.substring(0, 2)), hash);
+    }
+
+    private String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            log.warn("Cant delete file: {}", file);
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package edu.netcracker.center.service.impl;
 
 import com.mysema.query.types.Predicate;
+import edu.netcracker.center.service.FileServerService;
 import edu.netcracker.center.service.FormService;
 import edu.netcracker.center.domain.Form;
 import edu.netcracker.center.repository.FormRepository;
@@ -29,13 +30,57 @@ public class FormServiceImpl implements FormService{
     @Inject
     private FormRepository formRepository;
 
+    @Inject
+    private FileServerService fileServerService;
+
     /**
      * Save a form.
      * @return the persisted entity
      */
     public Form save(Form form) {
         log.debug("Request to save Form : {}", form);
+        // the file is changed only by saveFile, the stored hash is kept
+        String storedHash = Optional.ofNullable(form.getId())
+            .map(formRepository::findOne)
+            .map(Form::getFileHash)
+            .orElse(null);
+        form.setFileHash(storedHash);
+        Form result = formRepository.save(form);
+        return result;
+    }
+
+    /**
+     * Save a form with the file put before, releasing the previous file.
+     * @return the persisted entity
+     */
+    public Form saveFile(Form form, String fileName, String hash) {
+        log.debug("Request to save file of Form : {}, hash : {}", form, hash);
+        fileServerService.releaseOnRollback(hash);
+        return replaceFile(form, fileName, hash);
+    }
+
+    /**
+     * Save the file put before for the "id" form, releasing the previous file.
+     * @return the persisted entity, or null if there is no such form
+     */
+    public Form saveFile(Long id, String fileName, String hash) {
+        log.debug("Request to save file of Form : {}, hash : {}", id, hash);
+        // registered before anything else can fail, so the reference is never leaked
+        fileServerService.releaseOnRollback(hash);
+        Form form = formRepository.findOne(id);
+        if (form == null) {
+            fileServerService.delete(hash);
+            return null;
+        }
+        return replaceFile(form, fileName, hash);
+    }
+
+    private Form replaceFile(Form form, String fileName, String hash) {
+        String previousHash = form.getFileHash();
+        form.setFile(fileName);
+        form.setFileHash(hash);
         Form result = formRepository.save(form);
+        Optional.ofNullable(previousHash).ifPresent(fileServerService::delete);
         return result;
     }
 
@@ -82,6 +127,7 @@ public class FormServiceImpl implements FormService{
         log.debug("Request to delete Form : {}", id);
         Form form = formRepository.findOne(id);
         deleteRelationFromStudent(form);
+        Optional.ofNullable(form.getFileHash()).ifPresent(fileServerService::delete);
         formRepository.delete(form);
     }
 
@@ -89,6 +135,7 @@ public class FormServiceImpl implements FormService{
     public void delete(Form form) {
         log.debug("Request to delete Form : {}", form);
         deleteRelationFromStudent(form);
+        Optional.ofNullable(form.getFileHash()).ifPresent(fileServerService::delete);
         formRepository.delete(form);
     }
 
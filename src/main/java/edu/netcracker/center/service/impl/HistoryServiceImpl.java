@@ -1,15 +1,19 @@
 package edu.netcracker.center.service.impl;
 
 import edu.netcracker.center.domain.Student;
-import edu.netcracker.center.repository.StudentRepository;
 import edu.netcracker.center.service.HistoryService;
-import org.hibernate.envers.AuditReader;
-import org.hibernate.envers.AuditReaderFactory;
+import edu.netcracker.center.service.RevisionIndexService;
+import edu.netcracker.center.service.StudentSnapshotService;
+import edu.netcracker.center.web.rest.dto.StudentDiffDTO;
+import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.envers.RevisionType;
-import org.hibernate.envers.exception.RevisionDoesNotExistException;
-import org.hibernate.envers.query.AuditEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,7 +21,9 @@ import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import java.util.Collections;
 import java.util.Date;
-import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Service Implementation for view history.
@@ -28,30 +34,122 @@ public class HistoryServiceImpl implements HistoryService {
 
     private final Logger log = LoggerFactory.getLogger(HistoryServiceImpl.class);
 
+    private static final int FETCH_SIZE = 100;
+
+    private static final String[] AUDITED_COLUMNS = StudentSnapshotService.AUDITED_COLUMNS.split(", ");
+
+    // the first audit row of a changed student is its row as of the first revision, if the student existed then
+    private static final String DIFF_ROWS = "select a.id, a.rev, a.revtype, " +
+        StudentSnapshotService.AUDITED_COLUMNS + " from student_aud a where a.id in (select b.id from student_aud b where b.rev > :from and b.rev <= :to)" +
+        " and a.rev <= :to" +
+        " and a.rev >= coalesce((select max(c.rev) from student_aud c where c.id = a.id and c.rev <= :from), 0)" +
+        " order by a.id, a.rev";
+
+    @Inject
+    private EntityManager entityManager;
+
+    @Inject
+    private RevisionIndexService revisionIndexService;
+
     @Inject
-    EntityManager entityManager;
+    private StudentSnapshotService studentSnapshotService;
 
     /**
-     * get history of students by date.
+     * get a slice of history of students by date, with an id after "lastId", or from the first if it is null.
      *
-     * @return the list of entities
+     * @return the slice of entities ordered by id
      */
     @Transactional(readOnly = true)
-    public List<Student> getHistoryOfStudents(Date date) {
-        log.debug("Request to get history of Students : {}", date);
-        AuditReader auditReader = AuditReaderFactory.get(entityManager);
-        List<Student> list;
+    public Slice<Student> getHistoryOfStudents(Date date, Long lastId, int size) {
+        log.debug("Request to get a slice of history of Students : {} after id : {}", date, lastId);
+        return revisionIndexService.getRevisionNumberForDate(date)
+            .map(revision -> studentSnapshotService.getStudents(revision, lastId, size))
+            .orElse(new SliceImpl<>(Collections.emptyList(), new PageRequest(0, size), false));
+    }
+
+    /**
+     * pass the history of students by date to the consumer one by one, ordered by id, without loading them all.
+     */
+    @Transactional(readOnly = true)
+    public void forEachHistoryOfStudents(Date date, Consumer<Student> consumer) {
+        log.debug("Request to stream history of Students : {}", date);
+        revisionIndexService.getRevisionNumberForDate(date)
+            .ifPresent(revision -> studentSnapshotService.forEachStudent(revision, consumer));
+    }
+
+    /**
+     * pass the changes of the students between the dates to the consumer one by one, ordered by id, with only
+     * the changed fields.
+     */
+    @Transactional(readOnly = true)
+    public void forEachDiffOfStudents(Date from, Date to, Consumer<StudentDiffDTO> consumer) {
+        log.debug("Request to stream diff of Students from {} to {}", from, to);
+        int fromRevision = revisionIndexService.getRevisionNumberForDate(from).orElse(0);
+        Optional<Integer> toRevision = revisionIndexService.getRevisionNumberForDate(to);
+        if (!toRevision.isPresent() || toRevision.get() <= fromRevision) {
+            return;
+        }
+        ScrollableResults results = entityManager.createNativeQuery(DIFF_ROWS)
+            .setParameter("from", fromRevision)
+            .setParameter("to", toRevision.get())
+            .unwrap(SQLQuery.class)
+            .setFetchSize(FETCH_SIZE)
+            .setReadOnly(true)
+            .scroll(ScrollMode.FORWARD_ONLY);
         try {
-            list = (List<Student>) auditReader.createQuery()
-                .forRevisionsOfEntity(Student.class, true, true)
-                .add(AuditEntity.revisionNumber().le(auditReader.getRevisionNumberForDate(date)))
-                .add(AuditEntity.revisionNumber().maximize().computeAggregationInInstanceContext()
-                    .add(AuditEntity.revisionNumber().le(auditReader.getRevisionNumberForDate(date))))
-                .add(AuditEntity.revisionType().ne(RevisionType.DEL))
-                .getResultList();
-        } catch (RevisionDoesNotExistException exception) {
-            list = Collections.EMPTY_LIST;
+            // the rows of one student at a time are kept, as the states of the student at both revisions
+            Long id = null;
+            Object[] before = null;
+            Object[] after = null;
+            while (results.next()) {
+                Object[] row = results.get();
+                Long rowId = ((Number) row[0]).longValue();
+                if (!rowId.equals(id)) {
+                    diff(id, before, after).ifPresent(consumer);
+                    id = rowId;
+                    before = null;
+                    after = null;
+                }
+                Object[] state = ((Number) row[2]).intValue() == RevisionType.DEL.getRepresentation() ? null : row;
+                if (((Number) row[1]).intValue() <= fromRevision) {
+                    before = state;
+                }
+                after = state;
+            }
+            diff(id, before, after).ifPresent(consumer);
+        } finally {
+            results.close();
+        }
+    }
+
+    private Optional<StudentDiffDTO> diff(Long id, Object[] before, Object[] after) {
+        if (before == null && after == null) {
+            return Optional.empty();
+        }
+        RevisionType type = before == null ? RevisionType.ADD : after == null ? RevisionType.DEL : RevisionType.MOD;
+        StudentDiffDTO diff = new StudentDiffDTO(id, type);
+        for (int i = 0; i < AUDITED_COLUMNS.length; i++) {
+            Object from = before == null ? null : before[i + 3];
+            Object to = after == null ? null : after[i + 3];
+            if (!Objects.equals(from, to)) {
+                diff.addField(toPropertyName(AUDITED_COLUMNS[i]), from, to);
+            }
+        }
+        // a student changed back to the state of the first revision is not changed
+        return diff.getFields().isEmpty() && type == RevisionType.MOD ? Optional.empty() : Optional.of(diff);
+    }
+
+    private String toPropertyName(String column) {
+        StringBuilder name = new StringBuilder(column.length());
+        boolean upper = false;
+        for (char c : column.toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                name.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
         }
-        return list;
+        return name.toString();
     }
 }
@@ -1,125 +1,328 @@
 package edu.netcracker.center.service.impl;
 
+import edu.netcracker.center.config.JHipsterProperties;
 import edu.netcracker.center.domain.Student;
 import edu.netcracker.center.domain.StudentsSet;
 import edu.netcracker.center.domain.enumeration.UniversityEnumeration;
+import edu.netcracker.center.domain.util.ImportJob;
 import edu.netcracker.center.domain.util.OperationResult;
 import edu.netcracker.center.repository.StudentRepository;
 import edu.netcracker.center.service.ImportService;
 import edu.netcracker.center.service.StudentXslView;
 import edu.netcracker.center.service.StudentsSetService;
+import edu.netcracker.center.service.util.StreamingSheetReader;
 import org.apache.commons.lang.StringUtils;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Workbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
-import java.io.ByteArrayInputStream;
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service Implementation for importing.
+ *
+ * <p>
+ * Import is a two-stage pipeline. Chunks of rows are parsed and validated into plain rows in parallel on a
+ * fork-join pool, which does not touch the persistence context. The calling thread is the only writer: it takes
+ * the parsed chunks in sheet order, fetches the students referenced by a chunk with one query, and writes each
+ * chunk in its own transaction, so Hibernate sends the writes as JDBC batches. Parsing of the next chunk overlaps
+ * with writing of the previous one.
+ * </p>
+ * <p>
+ * Rows are reported to the job once their chunk is committed. A chunk failing to commit reports all its rows as
+ * failed and does not roll back the chunks committed before.
+ * </p>
  */
 @Service
-@Transactional
 public class ImportServiceImpl implements ImportService {
 
     private static final Logger log = LoggerFactory.getLogger(ImportServiceImpl.class);
     public static final boolean STUDENT_IS_ACTIVE = true;
 
+    private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @Inject
     StudentRepository studentRepository;
 
     @Inject
     StudentsSetService studentsSetService;
 
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    JHipsterProperties jHipsterProperties;
+
+    @Inject
+    PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private ForkJoinPool parsingPool;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        parsingPool = new ForkJoinPool(jHipsterProperties.getIntegration().getParallelism());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        parsingPool.shutdown();
+    }
+
     @Override
-    public Collection<OperationResult> handleImportOfStudents(MultipartFile file, Long setId) {
-        Workbook workbook;
-        try (ByteArrayInputStream stream = new ByteArrayInputStream(file.getBytes())) {
-            workbook = new HSSFWorkbook(stream);
-        } catch (IOException e) {
-            log.error("Cant export file of Students", e);
-            return Collections.singletonList(new OperationResult("1", "Неудалось прочитать файл", e.getMessage()));
-        }
+    public void importStudents(File file, Long setId, ImportJob job) throws IOException {
+        log.debug("Request to import Students for set: {}, job: {}", setId, job.getId());
         Optional<StudentsSet> set = Optional.ofNullable(studentsSetService.findOne(setId));
-        Collection<OperationResult> results = new LinkedList<>();
-        for (Row row : workbook.getSheetAt(0)) {
-            Integer rowNum = row.getRowNum();
+        int batchSize = jHipsterProperties.getIntegration().getBatchSize();
+        List<SheetRow> chunk = new ArrayList<>(batchSize);
+        // the chunk being parsed while the previous one is written
+        List<CompletableFuture<List<StudentRow>>> parsing = new ArrayList<>(1);
+        StreamingSheetReader.read(file, (rowNum, cells) -> {
             if (rowNum != 0) {
-                OperationResult result;
-                String num = rowNum.toString();
-                try {
-                    result = getNullableCell(row.getCell(StudentXslView.ID))
-                        .map(cell -> {
-                            Long id = new Long(cell.getStringCellValue());
-                            Student student = studentRepository.findOne(id);
-                            if (set.isPresent()) {
-                                if (!Objects.equals(student.getStudentsSet(), set.get())) {
-                                    return new OperationResult(num, "Студент не принадлежит данному набору",
-                                        student.toString());
-                                }
-                            }
-                            student = updateStudent(student, row);
-                            return new OperationResult(num, "Студент обнавлен", student.toString());
-                        })
-                        .orElseGet(() -> {
-                            Student student = new Student();
-                            student = updateStudent(student, row);
-                            student.setIsActive(STUDENT_IS_ACTIVE);
-                            return new OperationResult(num, "Студент создан", student.toString());
-                        });
-                } catch (RuntimeException e) {
-                    log.error("Cant save student", e);
-                    result = new OperationResult(rowNum.toString(), "Неудалось сохранить студента", e.getMessage());
+                chunk.add(new SheetRow(rowNum, cells));
+                if (chunk.size() >= batchSize) {
+                    CompletableFuture<List<StudentRow>> next = parseChunk(new ArrayList<>(chunk));
+                    chunk.clear();
+                    if (!parsing.isEmpty()) {
+                        importChunk(parsing.remove(0).join(), set, job);
+                    }
+                    parsing.add(next);
                 }
-                results.add(result);
             }
+        });
+        if (!parsing.isEmpty()) {
+            importChunk(parsing.remove(0).join(), set, job);
         }
-        return results;
+        importChunk(parseChunk(chunk).join(), set, job);
     }
 
-    private Student updateStudent(Student student, Row row) {
-        setParameter(row, StudentXslView.LAST_NAME, student::setLastName);
-        setParameter(row, StudentXslView.FIRST_NAME, student::setFirstName);
-        setParameter(row, StudentXslView.MIDDLE_NAME, student::setMiddleName);
-        setParameter(row, StudentXslView.EMAIL, student::setEmail);
-        setParameter(row, StudentXslView.PHONE, student::setPhone);
-        setUniversity(row, StudentXslView.UNIVERSITY, student::setUniversity);
-        setParameter(row, StudentXslView.SPECIALTY, student::setSpecialty);
-        setParameter(row, StudentXslView.FACULTY, student::setFaculty);
-        setParameter(row, StudentXslView.COURSE, student::setCourse);
-        setParameter(row, StudentXslView.COMMENT, student::setComment);
-        return studentRepository.save(student);
+    private CompletableFuture<List<StudentRow>> parseChunk(List<SheetRow> chunk) {
+        // a parallel stream started inside the pool forks its tasks into the same pool
+        return CompletableFuture.supplyAsync(() -> chunk.parallelStream()
+            .map(this::parseRow)
+            .collect(Collectors.toList()), parsingPool);
     }
 
+    private StudentRow parseRow(SheetRow sheetRow) {
+        Map<Integer, String> cells = sheetRow.cells;
+        StudentRow row = new StudentRow(sheetRow.rowNum);
+        try {
+            getNullableValue(cells, StudentXslView.ID)
+                .filter(StringUtils::isNotEmpty)
+                .map(Long::valueOf)
+                .ifPresent(id -> row.id = id);
+            setParameter(cells, StudentXslView.LAST_NAME, value -> row.lastName = value);
+            setParameter(cells, StudentXslView.FIRST_NAME, value -> row.firstName = value);
+            setParameter(cells, StudentXslView.MIDDLE_NAME, value -> row.middleName = value);
+            setParameter(cells, StudentXslView.EMAIL, value -> row.email = value);
+            setParameter(cells, StudentXslView.PHONE, value -> row.phone = value);
+            setUniversity(cells, StudentXslView.UNIVERSITY, value -> row.university = value);
+            setParameter(cells, StudentXslView.SPECIALTY, value -> row.specialty = value);
+            setParameter(cells, StudentXslView.FACULTY, value -> row.faculty = value);
+            setParameter(cells, StudentXslView.COURSE, value -> row.course = value);
+            setParameter(cells, StudentXslView.COMMENT, value -> row.comment = value);
+            validateRow(row);
+        } catch (RuntimeException e) {
+            row.error = e.getMessage();
+        }
+        return row;
+    }
 
-    private void setUniversity(Row row, int field, Consumer<UniversityEnumeration> consumer) {
-        getNullableCell(row.getCell(field)).
-            ifPresent(cell -> {
-                String value = cell.getStringCellValue();
+    private void validateRow(StudentRow row) {
+        // a new student needs the required values, an existing one only the values given in the row
+        Set<ConstraintViolation<Student>> violations = new HashSet<>();
+        if (row.id == null || row.lastName != null) {
+            violations.addAll(validator.validateValue(Student.class, "lastName", row.lastName));
+        }
+        if (row.id == null || row.email != null) {
+            violations.addAll(validator.validateValue(Student.class, "email", row.email));
+        }
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .collect(Collectors.joining(", ")));
+        }
+    }
+
+    private void importChunk(List<StudentRow> chunk, Optional<StudentsSet> set, ImportJob job) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Collection<OperationResult> results = new ArrayList<>(chunk.size());
+        Map<OperationResult, Student> saved = new HashMap<>();
+        try {
+            transactionTemplate.execute(status -> {
+                Map<Long, Student> students = prefetchStudents(chunk);
+                for (StudentRow row : chunk) {
+                    results.add(importRow(row, students, set, saved));
+                }
+                entityManager.flush();
+                // descriptions are filled after the flush, when created students already have their ids
+                saved.forEach((result, student) -> result.setDescription(student.toString()));
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.error("Cant save chunk of students", e);
+            Collection<OperationResult> failed = chunk.stream()
+                .map(row -> new OperationResult(row.rowNum.toString(), "Неудалось сохранить студента",
+                    e.getMessage()))
+                .collect(Collectors.toList());
+            job.addResults(failed, failed.size());
+            return;
+        }
+        job.addResults(results, results.size() - saved.size());
+    }
+
+    private OperationResult importRow(StudentRow row, Map<Long, Student> students, Optional<StudentsSet> set,
+                                      Map<OperationResult, Student> saved) {
+        String num = row.rowNum.toString();
+        if (row.error != null) {
+            return new OperationResult(num, "Неудалось сохранить студента", row.error);
+        }
+        Student student = null;
+        try {
+            if (row.id != null) {
+                student = students.get(row.id);
+                if (student == null) {
+                    return new OperationResult(num, "Студент не найден", row.id.toString());
+                }
+                if (set.isPresent() && !Objects.equals(student.getStudentsSet(), set.get())) {
+                    return new OperationResult(num, "Студент не принадлежит данному набору", student.toString());
+                }
+                row.applyTo(student);
+                OperationResult result = new OperationResult(num, "Студент обнавлен", null);
+                saved.put(result, student);
+                return result;
+            } else {
+                student = new Student();
+                student.setIsActive(STUDENT_IS_ACTIVE);
+                row.applyTo(student);
+                // validate here, a violation raised by the batched flush would fail the whole chunk
+                Set<ConstraintViolation<Student>> violations = validator.validate(student);
+                if (!violations.isEmpty()) {
+                    return new OperationResult(num, "Неудалось сохранить студента", violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .collect(Collectors.joining(", ")));
+                }
+                studentRepository.save(student);
+                OperationResult result = new OperationResult(num, "Студент создан", null);
+                saved.put(result, student);
+                return result;
+            }
+        } catch (RuntimeException e) {
+            log.error("Cant save student", e);
+            if (student != null && entityManager.contains(student)) {
+                // drop the partial changes, otherwise they would be written by the next flush
+                entityManager.refresh(student);
+            }
+            return new OperationResult(num, "Неудалось сохранить студента", e.getMessage());
+        }
+    }
+
+    private Map<Long, Student> prefetchStudents(List<StudentRow> chunk) {
+        Set<Long> ids = chunk.stream()
+            .filter(row -> row.error == null && row.id != null)
+            .map(row -> row.id)
+            .collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return studentRepository.findAll(ids).stream()
+            .collect(Collectors.toMap(Student::getId, Function.identity()));
+    }
+
+    private void setUniversity(Map<Integer, String> cells, int field, Consumer<UniversityEnumeration> consumer) {
+        getNullableValue(cells, field).
+            ifPresent(value -> {
                 if (StringUtils.isNotEmpty(value))
                     consumer.accept(UniversityEnumeration.valueOf(value));
             });
     }
 
-    private void setParameter(Row row, int field, Consumer<String> consumer) {
-        getNullableCell(row.getCell(field)).
-            ifPresent(cell -> {
-                cell.setCellType(Cell.CELL_TYPE_STRING);
-                consumer.accept(cell.getStringCellValue());
-            });
+    private void setParameter(Map<Integer, String> cells, int field, Consumer<String> consumer) {
+        getNullableValue(cells, field).ifPresent(consumer);
+    }
+
+    private Optional<String> getNullableValue(Map<Integer, String> cells, int field) {
+        return Optional.ofNullable(cells.get(field));
+    }
+
+    private static class SheetRow {
+
+        private final Integer rowNum;
+
+        private final Map<Integer, String> cells;
+
+        SheetRow(Integer rowNum, Map<Integer, String> cells) {
+            this.rowNum = rowNum;
+            this.cells = cells;
+        }
     }
 
-    private Optional<Cell> getNullableCell(Cell value) {
-        return Optional.ofNullable(value);
+    /**
+     * A parsed row of the sheet, null values are absent in the row and are not applied.
+     */
+    private static class StudentRow {
+
+        private final Integer rowNum;
+
+        private Long id;
+
+        private String lastName;
+
+        private String firstName;
+
+        private String middleName;
+
+        private String email;
+
+        private String phone;
+
+        private UniversityEnumeration university;
+
+        private String specialty;
+
+        private String faculty;
+
+        private String course;
+
+        private String comment;
+
+        private String error;
+
+        StudentRow(Integer rowNum) {
+            this.rowNum = rowNum;
+        }
+
+        void applyTo(Student student) {
+            Optional.ofNullable(lastName).ifPresent(student::setLastName);
+            Optional.ofNullable(firstName).ifPresent(student::setFirstName);
+            Optional.ofNullable(middleName).ifPresent(student::setMiddleName);
+            Optional.ofNullable(email).ifPresent(student::setEmail);
+            Optional.ofNullable(phone).ifPresent(student::setPhone);
+            Optional.ofNullable(university).ifPresent(student::setUniversity);
+            Optional.ofNullable(specialty).ifPresent(student::setSpecialty);
+            Optional.ofNullable(faculty).ifPresent(student::setFaculty);
+            Optional.ofNullable(course).ifPresent(student::setCourse);
+            Optional.ofNullable(comment).ifPresent(student::setComment);
+        }
     }
 }
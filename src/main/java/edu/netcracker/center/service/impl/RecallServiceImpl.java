@@ -1,6 +1,7 @@
 package edu.netcracker.center.service.impl;
 
 import com.mysema.query.types.Predicate;
+import edu.netcracker.center.service.FileServerService;
 import edu.netcracker.center.service.RecallService;
 import edu.netcracker.center.domain.Recall;
 import edu.netcracker.center.repository.RecallRepository;
@@ -27,15 +28,45 @@ public class RecallServiceImpl implements RecallService{
     @Inject
     private RecallRepository recallRepository;
 
+    @Inject
+    private FileServerService fileServerService;
+
     /**
      * Save a recall.
      * @return the persisted entity
      */
     public Recall save(Recall recall) {
         log.debug("Request to save Recall : {}", recall);
+        // the file is changed only by saveFile, the stored hash is kept
+        String storedHash = Optional.ofNullable(recall.getId())
+            .map(recallRepository::findOne)
+            .map(Recall::getFileHash)
+            .orElse(null);
+        recall.setFileHash(storedHash);
         return recallRepository.save(recall);
     }
 
+    /**
+     * Save the file put before for the "id" recall, releasing the previous file.
+     * @return the persisted entity, or null if there is no such recall
+     */
+    public Recall saveFile(Long id, String fileName, String hash) {
+        log.debug("Request to save file of Recall : {}, hash : {}", id, hash);
+        // registered before anything else can fail, so the reference is never leaked
+        fileServerService.releaseOnRollback(hash);
+        Recall recall = recallRepository.findOne(id);
+        if (recall == null) {
+            fileServerService.delete(hash);
+            return null;
+        }
+        String previousHash = recall.getFileHash();
+        recall.setFile(fileName);
+        recall.setFileHash(hash);
+        Recall result = recallRepository.save(recall);
+        Optional.ofNullable(previousHash).ifPresent(fileServerService::delete);
+        return result;
+    }
+
     /**
      *  get all the recalls.
      *  @return the list of entities
@@ -73,6 +104,8 @@ public class RecallServiceImpl implements RecallService{
      */
     public void delete(Long id) {
         log.debug("Request to delete Recall : {}", id);
-        recallRepository.delete(id);
+        Recall recall = recallRepository.findOne(id);
+        Optional.ofNullable(recall.getFileHash()).ifPresent(fileServerService::delete);
+        recallRepository.delete(recall);
     }
 }
@@ -1,8 +1,13 @@
 package edu.netcracker.center.service.impl;
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.mysema.query.BooleanBuilder;
+import com.mysema.query.jpa.impl.JPAQuery;
 import com.mysema.query.types.Predicate;
+import com.mysema.query.types.Projections;
 import edu.netcracker.center.domain.*;
+import edu.netcracker.center.domain.enumeration.TypeOfResult;
+import edu.netcracker.center.domain.util.StudentsSetVersionListener;
 import edu.netcracker.center.domain.util.OperationResult;
 import edu.netcracker.center.repository.AuthorityRepository;
 import edu.netcracker.center.repository.LearningResultRepository;
@@ -10,18 +15,53 @@ import edu.netcracker.center.repository.StudentRepository;
 import edu.netcracker.center.repository.UserRepository;
 import edu.netcracker.center.security.AuthoritiesConstants;
 import edu.netcracker.center.service.MailService;
+import edu.netcracker.center.service.PaginationCountService;
+import edu.netcracker.center.service.PrincipalContextService;
 import edu.netcracker.center.service.StudentService;
+import edu.netcracker.center.service.StudentSnapshotService;
 import edu.netcracker.center.service.UserService;
+import edu.netcracker.center.service.util.Keyset;
+import edu.netcracker.center.service.util.KeysetQueryUtil;
+import edu.netcracker.center.service.util.KeysetSlice;
+import edu.netcracker.center.service.util.PageQueryUtil;
+import edu.netcracker.center.web.rest.dto.ArchiveResultDTO;
+import edu.netcracker.center.web.rest.dto.StudentExportDTO;
+import org.apache.commons.lang.StringUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.hibernate.SQLQuery;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.envers.AuditReaderFactory;
+import org.hibernate.envers.RevisionType;
+import org.hibernate.search.jpa.FullTextEntityManager;
+import org.hibernate.search.jpa.FullTextQuery;
+import org.hibernate.search.jpa.Search;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.io.IOException;
+import java.sql.Timestamp;
 import java.time.ZonedDateTime;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service Implementation for managing Student.
@@ -32,9 +72,25 @@ public class StudentServiceImpl implements StudentService {
 
     private final Logger log = LoggerFactory.getLogger(StudentServiceImpl.class);
 
+    private static final int FETCH_SIZE = 100;
+
+    private static final String[] SEARCH_FIELDS =
+        {"lastName", "firstName", "middleName", "email", "phone", "specialty", "faculty"};
+
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    @Inject
+    private EntityManager entityManager;
+
     @Inject
     private StudentRepository studentRepository;
 
+    @Inject
+    private PaginationCountService paginationCountService;
+
+    @Inject
+    private PrincipalContextService principalContextService;
+
     @Inject
     private MailService mailService;
 
@@ -57,7 +113,11 @@ public class StudentServiceImpl implements StudentService {
      */
     public Student save(Student student) {
         log.debug("Request to save Student : {}", student);
+        // the user of the student may be relinked, both the previous and the new user are evicted
+        Optional.ofNullable(student.getId()).map(studentRepository::findOne).map(Student::getUser)
+            .ifPresent(user -> principalContextService.evict(user.getLogin()));
         Student result = studentRepository.save(student);
+        Optional.ofNullable(result.getUser()).ifPresent(user -> principalContextService.evict(user.getLogin()));
         return result;
     }
 
@@ -92,14 +152,106 @@ public class StudentServiceImpl implements StudentService {
     @Transactional(readOnly = true)
     public Page<Student> findAll(Predicate predicate, Pageable pageable) {
         log.debug("Request to get all Students by predicate");
-        return studentRepository.findAll(predicate, pageable);
+        return PageQueryUtil.findPage(entityManager, QStudent.student, predicate, pageable,
+            () -> paginationCountService.count(QStudent.student, predicate));
+    }
+
+    /**
+     * get the slice of the students by predicate.
+     *
+     * @return the slice of entities
+     */
+    @Transactional(readOnly = true)
+    public Slice<Student> findSlice(Predicate predicate, Pageable pageable) {
+        log.debug("Request to get a slice of Students by predicate");
+        return PageQueryUtil.findSlice(entityManager, QStudent.student, predicate, pageable);
     }
 
+    /**
+     * get the students by predicate after the keyset.
+     *
+     * @return the keyset page of entities
+     */
     @Transactional(readOnly = true)
-    public Page<Student> findByCurator(Curator curator, Pageable pageable) {
+    public KeysetSlice<Student> findAll(Predicate predicate, Keyset keyset, int size) {
+        log.debug("Request to get Students by predicate after keyset");
+        return KeysetQueryUtil.findSlice(entityManager, QStudent.student, predicate, keyset, size);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<Student> findByCurator(Long curatorId, Pageable pageable) {
         log.debug("Request to get all Students by curator");
-        return studentRepository.findAll(new BooleanBuilder().and(QStudent.student.curator.eq(curator))
-            .and(QStudent.student.isActive.eq(true)), pageable);
+        Predicate predicate = curatorPredicate(curatorId);
+        return PageQueryUtil.findPage(entityManager, QStudent.student, predicate, pageable,
+            () -> paginationCountService.count(QStudent.student, predicate));
+    }
+
+    @Transactional(readOnly = true)
+    public Slice<Student> findSliceByCurator(Long curatorId, Pageable pageable) {
+        log.debug("Request to get a slice of Students by curator");
+        return PageQueryUtil.findSlice(entityManager, QStudent.student, curatorPredicate(curatorId), pageable);
+    }
+
+    @Transactional(readOnly = true)
+    public KeysetSlice<Student> findByCurator(Long curatorId, Keyset keyset, int size) {
+        log.debug("Request to get Students by curator after keyset");
+        return KeysetQueryUtil.findSlice(entityManager, QStudent.student, curatorPredicate(curatorId), keyset, size);
+    }
+
+    private Predicate curatorPredicate(Long curatorId) {
+        return new BooleanBuilder().and(QStudent.student.curator.id.eq(curatorId))
+            .and(QStudent.student.isActive.eq(true));
+    }
+
+    /**
+     * search the students in the full-text index.
+     * <p>
+     * Every word of the query must match a field by prefix, or the whole term with a typo or two.
+     *
+     * @return the page of entities in the order of relevance
+     */
+    @Transactional(readOnly = true)
+    public Page<Student> search(String query, Pageable pageable) {
+        log.debug("Request to search Students for query {}", query);
+        FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(entityManager);
+        Analyzer analyzer = fullTextEntityManager.getSearchFactory().getAnalyzer(Student.class);
+        BooleanQuery luceneQuery = new BooleanQuery();
+        for (String word : analyze(analyzer, query)) {
+            BooleanQuery anyField = new BooleanQuery();
+            for (String field : SEARCH_FIELDS) {
+                Term term = new Term(field, word);
+                anyField.add(new PrefixQuery(term), BooleanClause.Occur.SHOULD);
+                if (word.length() >= MIN_FUZZY_LENGTH) {
+                    anyField.add(new FuzzyQuery(term, word.length() > MIN_FUZZY_LENGTH ? 2 : 1),
+                        BooleanClause.Occur.SHOULD);
+                }
+            }
+            luceneQuery.add(anyField, BooleanClause.Occur.MUST);
+        }
+        if (luceneQuery.clauses().isEmpty()) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+        FullTextQuery fullTextQuery = fullTextEntityManager.createFullTextQuery(luceneQuery, Student.class);
+        fullTextQuery.setFirstResult(pageable.getOffset());
+        fullTextQuery.setMaxResults(pageable.getPageSize());
+        @SuppressWarnings("unchecked")
+        List<Student> content = fullTextQuery.getResultList();
+        return new PageImpl<>(content, pageable, fullTextQuery.getResultSize());
+    }
+
+    private List<String> analyze(Analyzer analyzer, String query) {
+        List<String> words = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(SEARCH_FIELDS[0], query)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                words.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cant analyze query: " + query, e);
+        }
+        return words;
     }
 
     /**
@@ -114,6 +266,40 @@ public class StudentServiceImpl implements StudentService {
         return result;
     }
 
+    /**
+     * pass the export rows of the students matching the predicate to the consumer.
+     * <p>
+     * The related entities are joined into one flat projection, read with a forward-only scroll.
+     */
+    @Transactional(readOnly = true)
+    public void forEachExportRow(Predicate predicate, Consumer<StudentExportDTO> consumer) {
+        log.debug("Request to stream export rows of Students by predicate");
+        QStudent student = QStudent.student;
+        QLearningType learningType = QLearningType.learningType;
+        QCurator curator = QCurator.curator;
+        QGroupOfStudent groupOfStudent = QGroupOfStudent.groupOfStudent;
+        QStudentsSet studentsSet = QStudentsSet.studentsSet;
+        CloseableIterator<StudentExportDTO> iterator = new JPAQuery(entityManager).from(student)
+            .leftJoin(student.learningType, learningType)
+            .leftJoin(student.curator, curator)
+            .leftJoin(student.groupOfStudent, groupOfStudent)
+            .leftJoin(student.studentsSet, studentsSet)
+            .where(predicate)
+            .orderBy(student.id.asc())
+            .setHint(QueryHints.FETCH_SIZE, FETCH_SIZE)
+            .iterate(Projections.constructor(StudentExportDTO.class,
+                student.id, student.lastName, student.firstName, student.middleName, student.email, student.phone,
+                learningType.name, student.university, student.specialty, student.faculty, student.course,
+                curator.lastName, student.comment, groupOfStudent.name, studentsSet.name));
+        try {
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+            }
+        } finally {
+            iterator.close();
+        }
+    }
+
     /**
      * get one student by id.
      *
@@ -131,39 +317,87 @@ public class StudentServiceImpl implements StudentService {
      */
     public void delete(Long id) {
         log.debug("Request to delete Student : {}", id);
+        Optional.ofNullable(studentRepository.findOne(id)).map(Student::getUser)
+            .ifPresent(user -> principalContextService.evict(user.getLogin()));
         studentRepository.delete(id);
     }
 
     /**
      * register students
+     * <p>
+     * Collisions are checked with one query and users are saved together. The posted students are saved with
+     * their users, and the creation e-mails are queued in the same transaction.
      */
     @Transactional
     public Collection<OperationResult> registerStudents(Collection<Student> students, String baseUrl) {
-        log.debug("Request to register Students : {}", students);
+        log.debug("Request to register Students : {}", students.size());
+        Map<Long, Student> managed = studentRepository.findAll(students.stream()
+            .map(Student::getId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet())).stream()
+            .collect(Collectors.toMap(Student::getId, Function.identity()));
+        Set<String> emails = students.stream()
+            .filter(student -> managed.containsKey(student.getId()))
+            .map(Student::getEmail)
+            .filter(StringUtils::isNotBlank)
+            .collect(Collectors.toSet());
+        Set<String> takenLogins = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        if (!emails.isEmpty()) {
+            userRepository.findAllByLoginInOrEmailIn(emails, emails).forEach(user -> {
+                takenLogins.add(user.getLogin());
+                takenEmails.add(user.getEmail());
+            });
+        }
+
         Collection<OperationResult> results = new LinkedList<>();
+        List<Student> registered = new ArrayList<>();
+        List<User> users = new ArrayList<>();
         for (Student student : students) {
-            OperationResult result;
             Long id = student.getId();
             String email = student.getEmail();
-            try {
-                result = userRepository.findOneByLogin(email)
-                    .map(user -> createResult(id, "Пользователь с таким логином уже зарегистрирован", email))
-                    .orElseGet(() -> userRepository.findOneByEmail(email)
-                        .map(user -> createResult(id, "Пользователь с таким e-mail уже зарегистрирован", email))
-                        .orElseGet(() -> {
-                            User user = createUser(student);
-                            mailService.sendCreationEmail(user, baseUrl);
-                            student.setUser(user);
-                            studentRepository.save(student);
-                            return createResult(id, "Пользователь создан", email);
-                        })
-                    );
-            } catch (RuntimeException e) {
-                log.error("Exception when creating user for student", e);
-                result = createResult(id, e.getMessage(), email);
+            if (!managed.containsKey(id)) {
+                results.add(createResult(id, "Студент не найден", email));
+            } else if (StringUtils.isBlank(email)) {
+                results.add(createResult(id, "У студента не указан e-mail", email));
+            } else if (!takenLogins.add(email)) {
+                results.add(createResult(id, "Пользователь с таким логином уже зарегистрирован", email));
+            } else if (!takenEmails.add(email)) {
+                results.add(createResult(id, "Пользователь с таким e-mail уже зарегистрирован", email));
+            } else {
+                User user = new User();
+                user.setFirstName(student.getFirstName());
+                user.setLastName(student.getLastName());
+                user.setEmail(email);
+                users.add(user);
+                registered.add(student);
+                results.add(createResult(id, "Пользователь создан", email));
             }
-            results.add(result);
         }
+        if (users.isEmpty()) {
+            return results;
+        }
+
+        Set<Authority> authorities = new HashSet<>(authorityRepository.findAll(
+            Arrays.asList(AuthoritiesConstants.USER, AuthoritiesConstants.STUDENT)));
+        List<User> created = userService.createUsersForEC(users, authorities);
+        for (int i = 0; i < registered.size(); i++) {
+            Student student = registered.get(i);
+            // a student relinked from its previous user is evicted like in save
+            Optional.ofNullable(managed.get(student.getId()).getUser())
+                .ifPresent(user -> principalContextService.evict(user.getLogin()));
+            student.setUser(created.get(i));
+        }
+        // the previous and the posted sets are bumped as in archiveAll
+        Set<Long> setIds = registered.stream()
+            .flatMap(student -> Stream.of(managed.get(student.getId()).getStudentsSet(), student.getStudentsSet()))
+            .filter(Objects::nonNull)
+            .map(StudentsSet::getId)
+            .collect(Collectors.toSet());
+        studentRepository.save(registered);
+        setIds.forEach(StudentsSetVersionListener::bumpAfterCommit);
+        // the e-mails are sent from the outbox once the users are committed
+        created.forEach(user -> mailService.sendCreationEmail(user, baseUrl));
         return results;
     }
 
@@ -194,16 +428,137 @@ public class StudentServiceImpl implements StudentService {
         return studentRepository.save(student);
     }
 
-    private User createUser(Student student) {
-        Set<Authority> authorities = new HashSet<>();
-        authorities.add(authorityRepository.findOne(AuthoritiesConstants.USER));
-        authorities.add(authorityRepository.findOne(AuthoritiesConstants.STUDENT));
-        return userService.createUserForEC(student.getFirstName(), student.getLastName(),
-            student.getEmail(), authorities);
+    /**
+     * Archives the students with a few set-based statements instead of loading and saving every student, its user
+     * and its learning result. The changes are audited as one revision.
+     */
+    @Transactional
+    public ArchiveResultDTO archiveAll(Long studentsSetId, Long groupOfStudentId, TypeOfResult type,
+                                      String description) {
+        log.debug("Request to archive Students of set {} or group {}", studentsSetId, groupOfStudentId);
+        ArchiveScope scope = new ArchiveScope(studentsSetId, groupOfStudentId);
+        List<Long> setIds = findSetIds(scope, true);
+        ZonedDateTime now = ZonedDateTime.now();
+
+        int users = entityManager.createQuery("update User u set u.activated = false where u.id in " +
+            "(select s.user.id from Student s where s." + scope.property + " = :scope and s.isActive = true)")
+            .setParameter("scope", scope.id)
+            .executeUpdate();
+        // a student already having a result keeps it, like in archive
+        int learningResults = entityManager.createQuery("update LearningResult r set r.type = :type, " +
+            "r.description = :description, r.creationTime = :now where r.id in (select s.learningResult.id " +
+            "from Student s where s." + scope.property + " = :scope and s.isActive = true)")
+            .setParameter("type", type)
+            .setParameter("description", description)
+            .setParameter("now", now)
+            .setParameter("scope", scope.id)
+            .executeUpdate();
+
+        // the new results are tagged with the id of their student to be linked to it, then the tag is replaced
+        String tag = "archive-" + UUID.randomUUID() + ":";
+        Long lastId = Optional.ofNullable(entityManager.createQuery("select max(r.id) from LearningResult r",
+            Long.class).getSingleResult()).orElse(0L);
+        learningResults += createNativeUpdate("insert into learning_result (type, description, creation_time) " +
+            "select :type, concat(:tag, s.id), :now from student s where s." + scope.column + " = :scope " +
+            "and s.is_active = :active and s.learning_result_id is null", LearningResult.class)
+            .setParameter("type", type.name())
+            .setParameter("active", true)
+            .setParameter("tag", tag)
+            .setParameter("now", Timestamp.from(now.toInstant()))
+            .setParameter("scope", scope.id)
+            .executeUpdate();
+        createNativeUpdate("update student set learning_result_id = (select r.id from learning_result r " +
+            "where r.id > :lastId and r.description = concat(:tag, student.id)) where " + scope.column +
+            " = :scope and is_active = :active and learning_result_id is null", Student.class)
+            .setParameter("lastId", lastId)
+            .setParameter("active", true)
+            .setParameter("tag", tag)
+            .setParameter("scope", scope.id)
+            .executeUpdate();
+        entityManager.createQuery("update LearningResult r set r.description = :description " +
+            "where r.id > :lastId and r.description like :tag")
+            .setParameter("description", description)
+            .setParameter("lastId", lastId)
+            .setParameter("tag", tag + "%")
+            .executeUpdate();
+
+        audit(scope, true);
+        int students = entityManager.createQuery("update Student s set s.isActive = false " +
+            "where s." + scope.property + " = :scope and s.isActive = true")
+            .setParameter("scope", scope.id)
+            .executeUpdate();
+        setIds.forEach(StudentsSetVersionListener::bumpAfterCommit);
+        return new ArchiveResultDTO(students, users, learningResults);
+    }
+
+    /**
+     * Unzips the students with a few set-based statements, their learning results are deleted. The changes are
+     * audited as one revision.
+     */
+    @Transactional
+    public ArchiveResultDTO unzipAll(Long studentsSetId, Long groupOfStudentId) {
+        log.debug("Request to unzip Students of set {} or group {}", studentsSetId, groupOfStudentId);
+        ArchiveScope scope = new ArchiveScope(studentsSetId, groupOfStudentId);
+        List<Long> setIds = findSetIds(scope, false);
+
+        int users = entityManager.createQuery("update User u set u.activated = true where u.id in " +
+            "(select s.user.id from Student s where s." + scope.property + " = :scope and s.isActive = false)")
+            .setParameter("scope", scope.id)
+            .executeUpdate();
+        List<Long> resultIds = entityManager.createQuery("select s.learningResult.id from Student s " +
+            "where s." + scope.property + " = :scope and s.isActive = false", Long.class)
+            .setParameter("scope", scope.id)
+            .getResultList();
+
+        audit(scope, false);
+        int students = entityManager.createQuery("update Student s set s.isActive = true, " +
+            "s.learningResult = null where s." + scope.property + " = :scope and s.isActive = false")
+            .setParameter("scope", scope.id)
+            .executeUpdate();
+        int learningResults = resultIds.isEmpty() ? 0 : entityManager
+            .createQuery("delete from LearningResult r where r.id in :ids")
+            .setParameter("ids", resultIds)
+            .executeUpdate();
+        setIds.forEach(StudentsSetVersionListener::bumpAfterCommit);
+        return new ArchiveResultDTO(students, users, learningResults);
+    }
+
+    private List<Long> findSetIds(ArchiveScope scope, boolean active) {
+        return entityManager.createQuery("select distinct s.studentsSet.id from Student s " +
+            "where s." + scope.property + " = :scope and s.isActive = :active", Long.class)
+            .setParameter("scope", scope.id)
+            .setParameter("active", active)
+            .getResultList();
+    }
+
+    /**
+     * Writes the audit rows of the students of the scope being archived or unzipped, the bulk statements are not
+     * seen by Envers.
+     */
+    private void audit(ArchiveScope scope, boolean active) {
+        int revision = AuditReaderFactory.get(entityManager).getCurrentRevision(Revision.class, true).getId();
+        Query query = entityManager.createNativeQuery("insert into student_aud (id, rev, revtype, " +
+            StudentSnapshotService.AUDITED_COLUMNS + ") select s.id, :revision, :revisionType, s.course, s.email, " +
+            "s.first_name, s.last_name, s.middle_name, s.phone, s.specialty, s.university, s.faculty, :changed, " +
+            "s.got_job, s.comment from student s where s." + scope.column + " = :scope and s.is_active = :active");
+        query.unwrap(SQLQuery.class).addSynchronizedQuerySpace("student_aud");
+        query.setParameter("revision", revision)
+            .setParameter("revisionType", RevisionType.MOD.getRepresentation())
+            .setParameter("changed", !active)
+            .setParameter("scope", scope.id)
+            .setParameter("active", active)
+            .executeUpdate();
+    }
+
+    private Query createNativeUpdate(String sql, Class<?> entity) {
+        Query query = entityManager.createNativeQuery(sql);
+        // only the second level cache of the changed entity is evicted
+        query.unwrap(SQLQuery.class).addSynchronizedEntityClass(entity);
+        return query;
     }
 
     private OperationResult createResult(Long id, String message, String description) {
-        return new OperationResult(id.toString(), message, description);
+        return new OperationResult(String.valueOf(id), message, description);
     }
 
     @Override
@@ -212,4 +567,25 @@ public class StudentServiceImpl implements StudentService {
         Predicate predicate = new BooleanBuilder().and(QStudent.student.user.eq(user));
         return studentRepository.findOne(predicate);
     }
+
+    /**
+     * The students of a set, or of a group, archived or unzipped at once.
+     */
+    private static class ArchiveScope {
+
+        private final String property;
+
+        private final String column;
+
+        private final Long id;
+
+        ArchiveScope(Long studentsSetId, Long groupOfStudentId) {
+            if ((studentsSetId == null) == (groupOfStudentId == null)) {
+                throw new IllegalArgumentException("Either a set or a group is required");
+            }
+            this.property = studentsSetId != null ? "studentsSet.id" : "groupOfStudent.id";
+            this.column = studentsSetId != null ? "students_set_id" : "group_of_student_id";
+            this.id = studentsSetId != null ? studentsSetId : groupOfStudentId;
+        }
+    }
 }
@@ -0,0 +1,132 @@
+package edu.netcracker.center.service.util;
+
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.record.*;
+import org.apache.poi.poifs.filesystem.NPOIFSFileSystem;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.util.NumberToTextConverter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the first sheet of an XLS (BIFF8) file with the HSSF event model, so the workbook is never
+ * materialized: cell records are grouped into rows as they are parsed and handed over row by row.
+ */
+class HssfEventSheetReader implements HSSFListener {
+
+    private final SheetRowHandler handler;
+
+    private SSTRecord sharedStrings;
+
+    private int sheetIndex = -1;
+
+    private int currentRow = -1;
+
+    private Map<Integer, String> cells = new HashMap<>();
+
+    private FormulaRecord pendingFormula;
+
+    HssfEventSheetReader(SheetRowHandler handler) {
+        this.handler = handler;
+    }
+
+    void read(File file) throws IOException {
+        try (NPOIFSFileSystem fileSystem = new NPOIFSFileSystem(file, true)) {
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(this);
+            new HSSFEventFactory().processWorkbookEvents(request, fileSystem.getRoot());
+        }
+    }
+
+    @Override
+    public void processRecord(Record record) {
+        switch (record.getSid()) {
+            case BOFRecord.sid:
+                if (((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET) {
+                    sheetIndex++;
+                }
+                break;
+            case EOFRecord.sid:
+                if (sheetIndex == 0) {
+                    flushRow();
+                }
+                break;
+            case SSTRecord.sid:
+                sharedStrings = (SSTRecord) record;
+                break;
+            case LabelSSTRecord.sid:
+                LabelSSTRecord labelSst = (LabelSSTRecord) record;
+                addCell(labelSst.getRow(), labelSst.getColumn(),
+                    sharedStrings.getString(labelSst.getSSTIndex()).getString());
+                break;
+            case LabelRecord.sid:
+                LabelRecord label = (LabelRecord) record;
+                addCell(label.getRow(), label.getColumn(), label.getValue());
+                break;
+            case NumberRecord.sid:
+                NumberRecord number = (NumberRecord) record;
+                addCell(number.getRow(), number.getColumn(), NumberToTextConverter.toText(number.getValue()));
+                break;
+            case BoolRecord.sid:
+                BoolRecord bool = (BoolRecord) record;
+                addCell(bool.getRow(), bool.getColumn(), String.valueOf(bool.getBooleanValue()));
+                break;
+            case BlankRecord.sid:
+                BlankRecord blank = (BlankRecord) record;
+                addCell(blank.getRow(), blank.getColumn(), "");
+                break;
+            case FormulaRecord.sid:
+                addFormula((FormulaRecord) record);
+                break;
+            case StringRecord.sid:
+                if (pendingFormula != null) {
+                    addCell(pendingFormula.getRow(), pendingFormula.getColumn(), ((StringRecord) record).getString());
+                    pendingFormula = null;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void addFormula(FormulaRecord formula) {
+        switch (formula.getCachedResultType()) {
+            case Cell.CELL_TYPE_STRING:
+                // the cached string value is stored in the following StringRecord
+                pendingFormula = formula;
+                break;
+            case Cell.CELL_TYPE_BOOLEAN:
+                addCell(formula.getRow(), formula.getColumn(), String.valueOf(formula.getCachedBooleanValue()));
+                break;
+            case Cell.CELL_TYPE_NUMERIC:
+                addCell(formula.getRow(), formula.getColumn(), NumberToTextConverter.toText(formula.getValue()));
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void addCell(int row, short column, String value) {
+        if (sheetIndex != 0) {
+            return;
+        }
+        if (row != currentRow) {
+            flushRow();
+            currentRow = row;
+        }
+        cells.put((int) column, value);
+    }
+
+    private void flushRow() {
+        if (currentRow >= 0) {
+            handler.handleRow(currentRow, cells);
+            cells = new HashMap<>();
+            currentRow = -1;
+        }
+    }
+}
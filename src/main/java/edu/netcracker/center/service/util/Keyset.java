@@ -0,0 +1,122 @@
+package edu.netcracker.center.service.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a keyset (seek) page: the sort property and direction, and the sort key and the id of the last row
+ * of the previous page.
+ *
+ * <p>
+ * Cursors are opaque to the clients, they carry the sort, so the next pages are sorted the same way as the first one.
+ * </p>
+ */
+public final class Keyset {
+
+    private static final String ID = "id";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final String property;
+
+    private final Sort.Direction direction;
+
+    private final JsonNode key;
+
+    private final Long id;
+
+    private Keyset(String property, Sort.Direction direction, JsonNode key, Long id) {
+        this.property = property;
+        this.direction = direction;
+        this.key = key;
+        this.id = id;
+    }
+
+    /**
+     * @return the position before the first row sorted by the first order of the sort, or by id
+     */
+    public static Keyset first(Sort sort) {
+        Sort.Order order = sort == null ? null : sort.iterator().hasNext() ? sort.iterator().next() : null;
+        if (order == null) {
+            return new Keyset(ID, Sort.Direction.ASC, null, null);
+        }
+        return new Keyset(order.getProperty(), order.getDirection(), null, null);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static Keyset decode(String cursor) {
+        try {
+            JsonNode node = objectMapper.readTree(Base64.getUrlDecoder().decode(cursor));
+            if (!node.hasNonNull("p") || !node.hasNonNull("d") || !node.hasNonNull("i")) {
+                throw new IllegalArgumentException("Malformed cursor: " + cursor);
+            }
+            return new Keyset(node.get("p").asText(), Sort.Direction.fromString(node.get("d").asText()),
+                node.get("k"), node.get("i").asLong());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * @return the position after the row with the key and the id, in the same sort
+     */
+    public Keyset after(Object key, Long id) {
+        return new Keyset(property, direction, objectMapper.valueToTree(key), id);
+    }
+
+    public String encode() {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("p", property);
+        node.put("d", direction.name());
+        node.set("k", key);
+        node.put("i", id);
+        try {
+            return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(objectMapper.writeValueAsString(node).getBytes(StandardCharsets.UTF_8));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return true if this is the position before the first row
+     */
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    /**
+     * @return the sort key of the last row converted to the type, or null
+     */
+    public <T> T getKey(Class<T> type) {
+        if (key == null || key.isNull()) {
+            return null;
+        }
+        return objectMapper.convertValue(key, type);
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
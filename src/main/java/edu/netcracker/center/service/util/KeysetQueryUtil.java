@@ -0,0 +1,110 @@
+package edu.netcracker.center.service.util;
+
+import com.mysema.query.BooleanBuilder;
+import com.mysema.query.jpa.impl.JPAQuery;
+import com.mysema.query.types.Predicate;
+import com.mysema.query.types.expr.BooleanExpression;
+import com.mysema.query.types.path.ComparablePath;
+import com.mysema.query.types.path.EntityPathBase;
+import com.mysema.query.types.path.NumberPath;
+import com.mysema.query.types.path.PathBuilder;
+import edu.netcracker.center.web.rest.errors.CustomParameterizedException;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.List;
+
+/**
+ * Utility class for keyset (seek) pagination.
+ *
+ * <p>
+ * Pages are read with a "sort key, id" condition instead of an offset, so every page costs the same, and without a
+ * count query. Rows are ordered by a single property of the entity with the id as a tie breaker; nulls are expected
+ * to sort lowest, as in MySQL and H2.
+ * </p>
+ */
+public final class KeysetQueryUtil {
+
+    private static final String ID = "id";
+
+    private KeysetQueryUtil() {
+    }
+
+    /**
+     * Reads the "size" entities matching the predicate after the keyset.
+     *
+     * @throws CustomParameterizedException if the entities can not be sorted by the property of the keyset, or the
+     * key of the keyset is not of the type of the property
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> KeysetSlice<T> findSlice(EntityManager entityManager, EntityPathBase<T> root,
+                                               Predicate predicate, Keyset keyset, int size) {
+        Class<?> type = getSortType(entityManager, root.getType(), keyset.getProperty());
+        PathBuilder<T> entity = new PathBuilder<>(root.getType(), root.getMetadata());
+        ComparablePath key = entity.getComparable(keyset.getProperty(), (Class<Comparable>) type);
+        NumberPath<Long> id = entity.getNumber(ID, Long.class);
+        boolean ascending = keyset.getDirection().isAscending();
+
+        BooleanBuilder where = new BooleanBuilder(predicate);
+        if (!keyset.isFirst()) {
+            Comparable lastKey;
+            try {
+                lastKey = (Comparable) keyset.getKey(type);
+            } catch (IllegalArgumentException e) {
+                throw new CustomParameterizedException("invalidCursor", keyset.encode());
+            }
+            where.and(seek(key, id, lastKey, keyset.getId(), ascending));
+        }
+        List<T> rows = new JPAQuery(entityManager).from(root)
+            .where(where)
+            .orderBy(ascending ? key.asc() : key.desc(), ascending ? id.asc() : id.desc())
+            .limit(size + 1)
+            .list(root);
+
+        if (rows.size() <= size) {
+            return new KeysetSlice<>(rows, keyset, size, null);
+        }
+        List<T> content = rows.subList(0, size);
+        BeanWrapper last = new BeanWrapperImpl(content.get(size - 1));
+        Keyset next = keyset.after(last.getPropertyValue(keyset.getProperty()), (Long) last.getPropertyValue(ID));
+        return new KeysetSlice<>(content, keyset, size, next);
+    }
+
+    /**
+     * @return the type of the property if it is a persistent, single and comparable value of the entity
+     */
+    private static Class<?> getSortType(EntityManager entityManager, Class<?> entityType, String property) {
+        EntityType<?> entity = entityManager.getMetamodel().entity(entityType);
+        Attribute<?, ?> attribute = entity.getAttributes().stream()
+            .filter(candidate -> candidate.getName().equals(property))
+            .findFirst()
+            .orElseThrow(() -> new CustomParameterizedException("invalidSort", property));
+        Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(attribute.getJavaType());
+        if (!(attribute instanceof SingularAttribute)
+            || attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC
+            || !Comparable.class.isAssignableFrom(type)) {
+            throw new CustomParameterizedException("invalidSort", property);
+        }
+        return type;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BooleanExpression seek(ComparablePath key, NumberPath<Long> id, Comparable lastKey, Long lastId,
+                                          boolean ascending) {
+        if (ascending) {
+            if (lastKey == null) {
+                return key.isNull().and(id.gt(lastId)).or(key.isNotNull());
+            }
+            return key.gt(lastKey).or(key.eq(lastKey).and(id.gt(lastId)));
+        }
+        if (lastKey == null) {
+            return key.isNull().and(id.lt(lastId));
+        }
+        return key.lt(lastKey).or(key.eq(lastKey).and(id.lt(lastId))).or(key.isNull());
+    }
+}
@@ -0,0 +1,38 @@
+package edu.netcracker.center.service.util;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+
+/**
+ * A keyset (seek) page of entities: the rows after a {@link Keyset}, without a total count.
+ */
+public class KeysetSlice<T> extends SliceImpl<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Keyset keyset;
+
+    private final Keyset next;
+
+    public KeysetSlice(List<T> content, Keyset keyset, int size, Keyset next) {
+        super(content, new PageRequest(0, size, keyset.getDirection(), keyset.getProperty()), next != null);
+        this.keyset = keyset;
+        this.next = next;
+    }
+
+    /**
+     * @return the position the rows were read after
+     */
+    public Keyset getKeyset() {
+        return keyset;
+    }
+
+    /**
+     * @return the position after the last row, or null if this is the last page
+     */
+    public Keyset getNext() {
+        return next;
+    }
+}
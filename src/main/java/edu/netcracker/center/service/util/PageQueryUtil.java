@@ -0,0 +1,73 @@
+package edu.netcracker.center.service.util;
+
+import com.mysema.query.jpa.JPQLQuery;
+import com.mysema.query.jpa.impl.JPAQuery;
+import com.mysema.query.types.Predicate;
+import com.mysema.query.types.path.EntityPathBase;
+import com.mysema.query.types.path.PathBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.support.Querydsl;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Utility class for reading pages of entities without a count query for every page.
+ */
+public final class PageQueryUtil {
+
+    private PageQueryUtil() {
+    }
+
+    /**
+     * Reads the page of the entities matching the predicate. The total is asked from the supplier only when it can
+     * not be told from the page itself, i.e. when the page is full or past the end.
+     * <p>
+     * Without a pageable all the entities are read as one page, like the repositories do, and no count is run.
+     */
+    public static <T> Page<T> findPage(EntityManager entityManager, EntityPathBase<T> root, Predicate predicate,
+                                       Pageable pageable, LongSupplier total) {
+        if (pageable == null) {
+            return new PageImpl<>(query(entityManager, root, predicate, null).list(root));
+        }
+        List<T> content = query(entityManager, root, predicate, pageable)
+            .offset(pageable.getOffset())
+            .limit(pageable.getPageSize())
+            .list(root);
+        if (!content.isEmpty() && content.size() < pageable.getPageSize()) {
+            return new PageImpl<>(content, pageable, pageable.getOffset() + content.size());
+        }
+        if (content.isEmpty() && pageable.getOffset() == 0) {
+            return new PageImpl<>(content, pageable, 0);
+        }
+        return new PageImpl<>(content, pageable, total.getAsLong());
+    }
+
+    /**
+     * Reads the slice of the entities matching the predicate, one more row is read to tell if there is a next one.
+     */
+    public static <T> Slice<T> findSlice(EntityManager entityManager, EntityPathBase<T> root, Predicate predicate,
+                                         Pageable pageable) {
+        List<T> rows = query(entityManager, root, predicate, pageable)
+            .offset(pageable.getOffset())
+            .limit(pageable.getPageSize() + 1)
+            .list(root);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    private static <T> JPQLQuery query(EntityManager entityManager, EntityPathBase<T> root, Predicate predicate,
+                                       Pageable pageable) {
+        JPQLQuery query = new JPAQuery(entityManager).from(root).where(predicate);
+        if (pageable == null) {
+            return query;
+        }
+        Querydsl querydsl = new Querydsl(entityManager, new PathBuilder<>(root.getType(), root.getMetadata()));
+        return querydsl.applySorting(pageable.getSort(), query);
+    }
+}
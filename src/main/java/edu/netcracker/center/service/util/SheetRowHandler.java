@@ -0,0 +1,18 @@
+package edu.netcracker.center.service.util;
+
+import java.util.Map;
+
+/**
+ * Callback receiving rows of the first sheet one by one while a spreadsheet is streamed.
+ */
+@FunctionalInterface
+public interface SheetRowHandler {
+
+    /**
+     * Handle one row of the sheet.
+     *
+     * @param rowNum zero based number of the row
+     * @param cells  string values of the row keyed by zero based column index
+     */
+    void handleRow(int rowNum, Map<Integer, String> cells);
+}
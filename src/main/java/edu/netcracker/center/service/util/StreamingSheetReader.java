@@ -0,0 +1,42 @@
+package edu.netcracker.center.service.util;
+
+import org.apache.poi.POIXMLDocument;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Utility class for reading the first sheet of XLS and XLSX files row by row.
+ *
+ * <p>
+ * Both formats are read with the POI event API, so memory use does not depend on the size of the file.
+ * </p>
+ */
+public final class StreamingSheetReader {
+
+    private StreamingSheetReader() {
+    }
+
+    /**
+     * Streams the rows of the first sheet of the file to the handler.
+     *
+     * @param file    the XLS or XLSX file
+     * @param handler the callback receiving rows in sheet order
+     */
+    public static void read(File file, SheetRowHandler handler) throws IOException {
+        if (isOoxml(file)) {
+            new XssfSaxSheetReader(handler).read(file);
+        } else {
+            new HssfEventSheetReader(handler).read(file);
+        }
+    }
+
+    private static boolean isOoxml(File file) throws IOException {
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+            return POIXMLDocument.hasOOXMLHeader(stream);
+        }
+    }
+}
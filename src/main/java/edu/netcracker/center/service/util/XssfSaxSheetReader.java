@@ -0,0 +1,78 @@
+package edu.netcracker.center.service.util;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Reads the first sheet of an XLSX file with a SAX parser over the sheet XML, handing rows over one by one
+ * without building the XSSF object model.
+ */
+class XssfSaxSheetReader implements SheetContentsHandler {
+
+    private final SheetRowHandler handler;
+
+    private Map<Integer, String> cells = new HashMap<>();
+
+    XssfSaxSheetReader(SheetRowHandler handler) {
+        this.handler = handler;
+    }
+
+    void read(File file) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, this, new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void startRow(int rowNum) {
+        cells = new HashMap<>();
+    }
+
+    @Override
+    public void endRow(int rowNum) {
+        handler.handleRow(rowNum, cells);
+    }
+
+    @Override
+    public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+        cells.put((int) new CellReference(cellReference).getCol(), formattedValue);
+    }
+
+    @Override
+    public void headerFooter(String text, boolean isHeader, String tagName) {
+    }
+}
@@ -9,14 +9,15 @@ import edu.netcracker.center.domain.Curator;
 import edu.netcracker.center.domain.QCurator;
 import edu.netcracker.center.domain.QStudent;
 import edu.netcracker.center.domain.Student;
-import edu.netcracker.center.service.CuratorService;
+import edu.netcracker.center.service.PrincipalContextService;
 import edu.netcracker.center.service.StudentService;
-import edu.netcracker.center.service.UserService;
+import edu.netcracker.center.service.util.KeysetSlice;
 import edu.netcracker.center.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.querydsl.QueryDslUtils;
 import org.springframework.data.querydsl.binding.QuerydslPredicate;
@@ -26,6 +27,7 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.inject.Inject;
@@ -40,15 +42,12 @@ public class CurTabStudentResource {
     private final Logger log = LoggerFactory.getLogger(CurTabStudentResource.class);
 
     private final StudentService studentService;
-    private final UserService userService;
-    private final CuratorService curatorService;
+    private final PrincipalContextService principalContextService;
 
     @Inject
-    public CurTabStudentResource(StudentService studentService, UserService userService,
-                                 CuratorService curatorService) {
+    public CurTabStudentResource(StudentService studentService, PrincipalContextService principalContextService) {
         this.studentService = studentService;
-        this.userService = userService;
-        this.curatorService = curatorService;
+        this.principalContextService = principalContextService;
     }
 
     /**
@@ -59,15 +58,32 @@ public class CurTabStudentResource {
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
     public ResponseEntity<List<Student>> getAllStudents(@QuerydslPredicate(root = Student.class) Predicate predicate,
-                                                        Pageable pageable)
+                                                        Pageable pageable,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "true") boolean count)
         throws URISyntaxException {
         log.debug("REST request to get a page of Students for curator");
-        Curator curator = curatorService.findByUser(userService.getUserWithAuthorities());
-        log.debug("Curator present: {}", curator);
-        if (curator == null) {
+        Long curatorId = principalContextService.getCurrent()
+            .map(PrincipalContextService.PrincipalContext::getCuratorId)
+            .orElse(null);
+        log.debug("Curator present: {}", curatorId);
+        if (curatorId == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        Page<Student> page = studentService.findByCurator(curator, pageable);
+        if (cursor != null) {
+            pageable = PaginationUtil.defaultPageable(pageable);
+            KeysetSlice<Student> slice = studentService.findByCurator(curatorId,
+                PaginationUtil.parseCursor(cursor, pageable), pageable.getPageSize());
+            HttpHeaders headers = PaginationUtil.generateKeysetHttpHeaders(slice, "/api/cur-tab/students");
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
+        if (!count) {
+            pageable = PaginationUtil.defaultPageable(pageable);
+            Slice<Student> slice = studentService.findSliceByCurator(curatorId, pageable);
+            HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, "/api/cur-tab/students");
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
+        Page<Student> page = studentService.findByCurator(curatorId, pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/cur-tab/students");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
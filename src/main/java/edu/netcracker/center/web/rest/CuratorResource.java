@@ -5,11 +5,13 @@ import com.mysema.query.types.Predicate;
 import edu.netcracker.center.domain.Curator;
 import edu.netcracker.center.service.CuratorService;
 import edu.netcracker.center.web.rest.util.HeaderUtil;
+import edu.netcracker.center.service.util.KeysetSlice;
 import edu.netcracker.center.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.querydsl.binding.QuerydslPredicate;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -84,9 +86,24 @@ public class CuratorResource {
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
     public ResponseEntity<List<Curator>> getAllCurators(Pageable pageable,
-                                                        @QuerydslPredicate (root = Curator.class)Predicate predicate)
+                                                        @QuerydslPredicate (root = Curator.class)Predicate predicate,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "true") boolean count)
         throws URISyntaxException {
         log.debug("REST request to get a page of Curators");
+        if (cursor != null) {
+            pageable = PaginationUtil.defaultPageable(pageable);
+            KeysetSlice<Curator> slice = curatorService.findAll(predicate,
+                PaginationUtil.parseCursor(cursor, pageable), pageable.getPageSize());
+            HttpHeaders headers = PaginationUtil.generateKeysetHttpHeaders(slice, "/api/curators");
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
+        if (!count) {
+            pageable = PaginationUtil.defaultPageable(pageable);
+            Slice<Curator> slice = curatorService.findSlice(predicate, pageable);
+            HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, "/api/curators");
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
         Page<Curator> page = curatorService.findAll(predicate, pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/curators");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
@@ -6,12 +6,14 @@ import com.mysema.query.types.Predicate;
 import edu.netcracker.center.domain.QStudent;
 import edu.netcracker.center.domain.Student;
 import edu.netcracker.center.service.StudentService;
+import edu.netcracker.center.service.util.KeysetSlice;
 import edu.netcracker.center.web.rest.util.HeaderUtil;
 import edu.netcracker.center.web.rest.util.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.querydsl.binding.QuerydslPredicate;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -83,7 +85,9 @@ public class StudentResource {
     @Timed
     public ResponseEntity<List<Student>> getAllStudents(@QuerydslPredicate(root = Student.class) Predicate predicate,
                                                         Pageable pageable,
-                                                        @RequestParam(required = false) String filter)
+                                                        @RequestParam(required = false) String filter,
+                                                        @RequestParam(required = false) String cursor,
+                                                        @RequestParam(defaultValue = "true") boolean count)
         throws URISyntaxException {
         log.debug("REST request to get a page of Students");
         if ("groupOfStudent-is-null".equals(filter)) {
@@ -92,11 +96,39 @@ public class StudentResource {
             QStudent student = QStudent.student;
             predicate = builder.and(student.groupOfStudent.isNull());
         }
+        if (cursor != null) {
+            pageable = PaginationUtil.defaultPageable(pageable);
+            KeysetSlice<Student> slice = studentService.findAll(predicate,
+                PaginationUtil.parseCursor(cursor, pageable), pageable.getPageSize());
+            HttpHeaders headers = PaginationUtil.generateKeysetHttpHeaders(slice, "/api/students");
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
+        if (!count) {
+            pageable = PaginationUtil.defaultPageable(pageable);
+            Slice<Student> slice = studentService.findSlice(predicate, pageable);
+            HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, "/api/students");
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        }
         Page<Student> page = studentService.findAll(predicate, pageable);
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/students");
         return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * GET  /students/_search?query=:query -> search the students by words, prefixes or words with typos.
+     */
+    @RequestMapping(value = "/students/_search",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Student>> searchStudents(@RequestParam String query, Pageable pageable)
+        throws URISyntaxException {
+        log.debug("REST request to search Students for query {}", query);
+        Page<Student> page = studentService.search(query, PaginationUtil.defaultPageable(pageable));
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(page, "/api/students/_search");
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
     /**
      * GET  /students/:id -> get the "id" student.
      */
@@ -7,6 +7,7 @@ import edu.netcracker.center.repository.AuthorityRepository;
 import edu.netcracker.center.repository.UserRepository;
 import edu.netcracker.center.security.AuthoritiesConstants;
 import edu.netcracker.center.service.MailService;
+import edu.netcracker.center.service.PrincipalContextService;
 import edu.netcracker.center.service.UserService;
 import edu.netcracker.center.web.rest.dto.ManagedUserDTO;
 import edu.netcracker.center.web.rest.util.HeaderUtil;
@@ -75,6 +76,9 @@ public class UserResource {
     @Inject
     private UserService userService;
 
+    @Inject
+    private PrincipalContextService principalContextService;
+
     /**
      * POST  /users -> Creates a new user.
      * <p>
@@ -135,6 +139,7 @@ public class UserResource {
         return userRepository
             .findOneById(managedUserDTO.getId())
             .map(user -> {
+                principalContextService.evict(user.getLogin());
                 user.setLogin(managedUserDTO.getLogin());
                 user.setFirstName(managedUserDTO.getFirstName());
                 user.setLastName(managedUserDTO.getLastName());
@@ -0,0 +1,43 @@
+package edu.netcracker.center.web.rest.dto;
+
+/**
+ * The numbers of the rows changed by archiving or unzipping the students of a set or of a group at once.
+ */
+public class ArchiveResultDTO {
+
+    private final int students;
+
+    private final int users;
+
+    private final int learningResults;
+
+    public ArchiveResultDTO(int students, int users, int learningResults) {
+        this.students = students;
+        this.users = users;
+        this.learningResults = learningResults;
+    }
+
+    public int getStudents() {
+        return students;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    /**
+     * @return the number of the learning results created or updated when archiving, deleted when unzipping
+     */
+    public int getLearningResults() {
+        return learningResults;
+    }
+
+    @Override
+    public String toString() {
+        return "ArchiveResultDTO{" +
+            "students=" + students +
+            ", users=" + users +
+            ", learningResults=" + learningResults +
+            '}';
+    }
+}
@@ -0,0 +1,74 @@
+package edu.netcracker.center.web.rest.dto;
+
+import org.hibernate.envers.RevisionType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The audited fields of a student changed between two revisions, with their values at both revisions.
+ */
+public class StudentDiffDTO {
+
+    private final Long id;
+
+    private final RevisionType type;
+
+    private final Map<String, FieldChange> fields = new LinkedHashMap<>();
+
+    public StudentDiffDTO(Long id, RevisionType type) {
+        this.id = id;
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return ADD if the student is created after the first revision, DEL if it is deleted before the second one
+     */
+    public RevisionType getType() {
+        return type;
+    }
+
+    public Map<String, FieldChange> getFields() {
+        return fields;
+    }
+
+    public void addField(String name, Object from, Object to) {
+        fields.put(name, new FieldChange(from, to));
+    }
+
+    @Override
+    public String toString() {
+        return "StudentDiffDTO{" +
+            "id=" + id +
+            ", type='" + type + "'" +
+            ", fields='" + fields.keySet() + "'" +
+            '}';
+    }
+
+    /**
+     * The values of a field at both revisions.
+     */
+    public static class FieldChange {
+
+        private final Object from;
+
+        private final Object to;
+
+        public FieldChange(Object from, Object to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public Object getFrom() {
+            return from;
+        }
+
+        public Object getTo() {
+            return to;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package edu.netcracker.center.web.rest.dto;
+
+import edu.netcracker.center.domain.enumeration.UniversityEnumeration;
+
+/**
+ * A flat row of the export of students, with the names of the related entities instead of the entities.
+ */
+public class StudentExportDTO {
+
+    private final Long id;
+
+    private final String lastName;
+
+    private final String firstName;
+
+    private final String middleName;
+
+    private final String email;
+
+    private final String phone;
+
+    private final String learningType;
+
+    private final UniversityEnumeration university;
+
+    private final String specialty;
+
+    private final String faculty;
+
+    private final String course;
+
+    private final String curator;
+
+    private final String comment;
+
+    private final String groupOfStudent;
+
+    private final String studentsSet;
+
+    public StudentExportDTO(Long id, String lastName, String firstName, String middleName, String email,
+                            String phone, String learningType, UniversityEnumeration university, String specialty,
+                            String faculty, String course, String curator, String comment, String groupOfStudent,
+                            String studentsSet) {
+        this.id = id;
+        this.lastName = lastName;
+        this.firstName = firstName;
+        this.middleName = middleName;
+        this.email = email;
+        this.phone = phone;
+        this.learningType = learningType;
+        this.university = university;
+        this.specialty = specialty;
+        this.faculty = faculty;
+        this.course = course;
+        this.curator = curator;
+        this.comment = comment;
+        this.groupOfStudent = groupOfStudent;
+        this.studentsSet = studentsSet;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getMiddleName() {
+        return middleName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPhone() {
+        return phone;
+    }
+
+    public String getLearningType() {
+        return learningType;
+    }
+
+    public UniversityEnumeration getUniversity() {
+        return university;
+    }
+
+    public String getSpecialty() {
+        return specialty;
+    }
+
+    public String getFaculty() {
+        return faculty;
+    }
+
+    public String getCourse() {
+        return course;
+    }
+
+    public String getCurator() {
+        return curator;
+    }
+
+    public String getComment() {
+        return comment;
+    }
+
+    public String getGroupOfStudent() {
+        return groupOfStudent;
+    }
+
+    public String getStudentsSet() {
+        return studentsSet;
+    }
+
+    @Override
+    public String toString() {
+        return "StudentExportDTO{" +
+            "id=" + id +
+            ", lastName='" + lastName + "'" +
+            ", firstName='" + firstName + "'" +
+            ", email='" + email + "'" +
+            '}';
+    }
+}
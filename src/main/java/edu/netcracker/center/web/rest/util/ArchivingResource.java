@@ -2,7 +2,9 @@ package edu.netcracker.center.web.rest.util;
 
 import com.codahale.metrics.annotation.Timed;
 import edu.netcracker.center.domain.Student;
+import edu.netcracker.center.domain.enumeration.TypeOfResult;
 import edu.netcracker.center.service.StudentService;
+import edu.netcracker.center.web.rest.dto.ArchiveResultDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
@@ -10,6 +12,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.inject.Inject;
@@ -57,4 +60,43 @@ public class ArchivingResource {
             .headers(HeaderUtil.createEntityUpdateAlert("student", result.getId().toString()))
             .body(result);
     }
+
+    /**
+     * POST  /students/archive/bulk -> archive the active students of the "studentsSetId" set or of the
+     * "groupOfStudentId" group.
+     */
+    @RequestMapping(value = "/students/archive/bulk",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<ArchiveResultDTO> archiveStudents(@RequestParam(required = false) Long studentsSetId,
+                                                            @RequestParam(required = false) Long groupOfStudentId,
+                                                            @RequestParam TypeOfResult type,
+                                                            @RequestParam(required = false) String description) {
+        log.debug("REST request to archive Students of set {} or group {}, result: {}", studentsSetId,
+            groupOfStudentId, type);
+        if ((studentsSetId == null) == (groupOfStudentId == null)) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("student", "invalidscope",
+                "Either a set or a group is required")).body(null);
+        }
+        return ResponseEntity.ok(studentService.archiveAll(studentsSetId, groupOfStudentId, type, description));
+    }
+
+    /**
+     * DELETE  /students/archive/bulk -> unzip the archived students of the "studentsSetId" set or of the
+     * "groupOfStudentId" group.
+     */
+    @RequestMapping(value = "/students/archive/bulk",
+        method = RequestMethod.DELETE,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<ArchiveResultDTO> unzipStudents(@RequestParam(required = false) Long studentsSetId,
+                                                          @RequestParam(required = false) Long groupOfStudentId) {
+        log.debug("REST request to unzip Students of set {} or group {}", studentsSetId, groupOfStudentId);
+        if ((studentsSetId == null) == (groupOfStudentId == null)) {
+            return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("student", "invalidscope",
+                "Either a set or a group is required")).body(null);
+        }
+        return ResponseEntity.ok(studentService.unzipAll(studentsSetId, groupOfStudentId));
+    }
 }
@@ -4,12 +4,11 @@ package edu.netcracker.center.web.rest.util;
 import com.codahale.metrics.annotation.Timed;
 import edu.netcracker.center.domain.Curator;
 import edu.netcracker.center.domain.Student;
-import edu.netcracker.center.domain.User;
 import edu.netcracker.center.security.AuthoritiesConstants;
 import edu.netcracker.center.security.SecurityUtils;
 import edu.netcracker.center.service.CuratorService;
+import edu.netcracker.center.service.PrincipalContextService;
 import edu.netcracker.center.service.StudentService;
-import edu.netcracker.center.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -21,6 +20,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.inject.Inject;
 import java.net.URISyntaxException;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api")
@@ -28,13 +28,14 @@ public class CurrentEntityIdResource {
 
     private final Logger log = LoggerFactory.getLogger(CurrentEntityIdResource.class);
 
-    private final UserService userService;
+    private final PrincipalContextService principalContextService;
     private final CuratorService curatorService;
     private final StudentService studentService;
 
     @Inject
-    CurrentEntityIdResource(UserService userService, CuratorService curatorService, StudentService studentService) {
-        this.userService = userService;
+    CurrentEntityIdResource(PrincipalContextService principalContextService, CuratorService curatorService,
+                            StudentService studentService) {
+        this.principalContextService = principalContextService;
         this.curatorService = curatorService;
         this.studentService = studentService;
     }
@@ -49,17 +50,19 @@ public class CurrentEntityIdResource {
     @Timed
     public ResponseEntity<Object> getCurrentId() throws URISyntaxException {
         log.debug("REST request to get current entity");
-        User user = userService.getUserWithAuthorities();
-        if (user == null) {
+        Optional<PrincipalContextService.PrincipalContext> context = principalContextService.getCurrent();
+        if (!context.isPresent()) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
         if (SecurityUtils.isCurrentUserInRole(AuthoritiesConstants.CURATOR)) {
-            Curator curator = curatorService.findByUser(user);
+            Long curatorId = context.get().getCuratorId();
+            Curator curator = curatorId == null ? null : curatorService.findOne(curatorId);
             log.debug("Curator present: {}", curator);
             return new ResponseEntity<>(curator, HttpStatus.OK);
         }
         if (SecurityUtils.isCurrentUserInRole(AuthoritiesConstants.STUDENT)) {
-            Student student = studentService.findByUser(user);
+            Long studentId = context.get().getStudentId();
+            Student student = studentId == null ? null : studentService.findOne(studentId);
             log.debug("Student present: {}", student);
             return new ResponseEntity<>(student, HttpStatus.OK);
         }
@@ -0,0 +1,214 @@
+package edu.netcracker.center.web.rest.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Utility class for sending files to the client.
+ *
+ * <p>
+ * Files are sent with sendfile when the container supports it, so the content is not copied through the heap.
+ * Otherwise they are copied with {@link FileChannel#transferTo} to a channel wrapping the output stream of
+ * the response, which goes through a heap buffer. Conditional requests (If-None-Match, If-Modified-Since) and a
+ * single byte range (Range, If-Range) are supported, so interrupted downloads can be resumed.
+ * </p>
+ */
+public class FileDownloadUtil {
+
+    private static final Logger log = LoggerFactory.getLogger(FileDownloadUtil.class);
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String BYTES_PREFIX = "bytes=";
+
+    private static final String ATTR_CHARS = "!#$&+-.^_`|~";
+
+    /**
+     * Sends the file as an attachment named "fileName", or 404 if there is no such file.
+     */
+    public static void sendFile(File file, String fileName, String contentType,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String eTag = "\"" + Long.toHexString(file.length()) + "-" + Long.toHexString(file.lastModified()) + "\"";
+        sendFile(file, fileName, contentType, eTag, request, response);
+    }
+
+    /**
+     * Sends the file as an attachment named "fileName" with the "eTag" entity tag, or 404 if there is no such file.
+     */
+    public static void sendFile(File file, String fileName, String contentType, String eTag,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!file.isFile()) {
+            log.info("File not found: {}", file);
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        response.setHeader("ETag", eTag);
+        response.setDateHeader("Last-Modified", lastModified);
+        response.setHeader("Accept-Ranges", "bytes");
+        if (isNotModified(request, eTag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader("Range");
+        if (range != null && isRangeApplicable(request, eTag, lastModified)) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == null) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds.length > 0) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        response.setContentType(contentType);
+        response.setHeader("Content-Disposition", getContentDisposition(fileName));
+        response.setContentLengthLong(end - start + 1);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // the container writes the file with sendfile after the request is handled
+            request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            transfer(channel, start, end - start + 1, response.getOutputStream());
+        }
+    }
+
+    /**
+     * The name is sent as UTF-8 in "filename*" (RFC 5987), with an ASCII "filename" for clients without its support.
+     *
+     * @return the Content-Disposition header of an attachment named "fileName"
+     */
+    public static String getContentDisposition(String fileName) {
+        StringBuilder ascii = new StringBuilder(fileName.length());
+        StringBuilder encoded = new StringBuilder(fileName.length());
+        for (char c : fileName.toCharArray()) {
+            ascii.append(c >= 0x20 && c < 0x7f && c != '"' && c != '\\' ? c : '_');
+        }
+        for (byte b : fileName.getBytes(StandardCharsets.UTF_8)) {
+            int c = b & 0xff;
+            if (c < 0x80 && (Character.isLetterOrDigit(c) || ATTR_CHARS.indexOf(c) >= 0)) {
+                encoded.append((char) c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit(c >> 4, 16)))
+                    .append(Character.toUpperCase(Character.forDigit(c & 0xf, 16)));
+            }
+        }
+        return "attachment; filename=\"" + ascii + "\"; filename*=UTF-8''" + encoded;
+    }
+
+    /**
+     * Copies "count" bytes of the channel starting from "position" to the stream, through a heap buffer.
+     */
+    public static void transfer(FileChannel channel, long position, long count, OutputStream out)
+        throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long end = position + count;
+        while (position < end) {
+            position += channel.transferTo(position, end - position, target);
+        }
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, String eTag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return "*".equals(ifNoneMatch.trim()) || Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .anyMatch(eTag::equals);
+        }
+        long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+        // the header has a precision of seconds
+        return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static boolean isRangeApplicable(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return eTag.equals(ifRange.trim());
+        }
+        long date = getDateHeader(request, "If-Range");
+        return date != -1 && lastModified / 1000 == date / 1000;
+    }
+
+    /**
+     * @return the first and the last byte of the range, an empty array if the whole file should be sent, or null
+     * if the range can not be satisfied
+     */
+    private static long[] parseRange(String range, long length) {
+        // multiple ranges are not worth a multipart response, the whole file is sent instead
+        if (!range.startsWith(BYTES_PREFIX) || range.contains(",")) {
+            return new long[0];
+        }
+        String spec = range.substring(BYTES_PREFIX.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (StringUtils.isEmpty(first)) {
+                // the suffix form "-n" asks for the last n bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = StringUtils.isEmpty(last) ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private static long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
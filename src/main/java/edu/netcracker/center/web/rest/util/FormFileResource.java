@@ -1,6 +1,7 @@
 package edu.netcracker.center.web.rest.util;
 
 import com.codahale.metrics.annotation.Timed;
+import edu.netcracker.center.config.JHipsterProperties;
 import edu.netcracker.center.domain.Form;
 import edu.netcracker.center.service.FileServerService;
 import edu.netcracker.center.service.FormService;
@@ -12,15 +13,16 @@ import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.support.MissingServletRequestPartException;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.ZonedDateTime;
+import java.util.Optional;
 
 /**
  * REST controller for managing files of form.
@@ -42,6 +44,9 @@ public class FormFileResource {
     @Inject
     FileServerService fileServerService;
 
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
     /**
      * POST  /apply/forms -> Upload a new form.
      */
@@ -49,22 +54,10 @@ public class FormFileResource {
         method = RequestMethod.POST,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public void createForm(@RequestParam("file") MultipartFile file) {
-        String fileName = file.getOriginalFilename();
-        Form form = createForm(fileName);
-        String dirPath = fileServerService.getPath() + FORMS_PATH + form.getId();
-        log.debug("REST request to save Apply with id: {}, to path: {}, fileName: {}", form.getId(), dirPath,
-            fileName);
-        try {
-            File directory = new File(dirPath);
-            boolean result = directory.mkdirs();
-            log.debug("Dirs Created: {}", result);
-            file.transferTo(new File(dirPath + "/" + fileName));
-        } catch (IOException e) {
-            log.error("Error saving file for form: {}, file:{}", form.getId(), fileName, e);
-            formService.delete(form);
-            throw new RuntimeException(e);
-        }
+    public void createForm(HttpServletRequest request) throws MissingServletRequestPartException {
+        log.debug("REST request to save Apply");
+        StreamingUploadUtil.StoredFile file = storeFile(request);
+        createForm(file.getName(), file.getHash());
     }
 
     /**
@@ -96,21 +89,17 @@ public class FormFileResource {
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public void downloadFile(@PathVariable Long id, HttpServletResponse response) {
+    public void downloadFile(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
         log.debug("REST request to get file of Form by id: {}", id);
         Form form = formService.findOne(id);
-        String filePath = fileServerService.getPath() + FORMS_PATH + form.getId() + "/" + form.getFile();
-        log.debug("File path: {}", filePath);
-        try (InputStream is = new FileInputStream(filePath)) {
-            String fileName = java.net.URLEncoder.encode(form.getFile(),"UTF-8");
-            response.setContentType("application/msword");
-            response.setHeader("Content-Disposition", "attachment; filename=" + fileName);
-            IOUtils.copy(is, response.getOutputStream());
-            response.flushBuffer();
-        } catch (IOException e) {
-            log.info("Error getting file for form: {}, file:{}", form.getId(), form.getFile());
-            throw new RuntimeException(e);
+        Optional<File> file = getFile(form);
+        log.debug("File path: {}", file);
+        if (!file.isPresent()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        FileDownloadUtil.sendFile(file.get(), form.getFile(), "application/msword", request, response);
     }
 
     /**
@@ -120,33 +109,46 @@ public class FormFileResource {
         method = RequestMethod.POST,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public void saveFile(@RequestParam("file") MultipartFile file, @PathVariable Long id) {
+    public void saveFile(HttpServletRequest request, HttpServletResponse response, @PathVariable Long id)
+        throws MissingServletRequestPartException, IOException {
         Form form = formService.findOne(id);
-        String fileName = file.getOriginalFilename();
-        String dirPath = fileServerService.getPath() + FORMS_PATH + id;
-        log.debug("REST request to save file of Form by id: {}, to path: {}, fileName: {}", id, dirPath,
-            fileName);
+        log.debug("REST request to save file of Form by id: {}", id);
+        if (form == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        StreamingUploadUtil.StoredFile file = storeFile(request);
+        if (formService.saveFile(id, file.getName(), file.getHash()) == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        }
+    }
+
+    private StreamingUploadUtil.StoredFile storeFile(HttpServletRequest request)
+        throws MissingServletRequestPartException {
         try {
-            File directory = new File(dirPath);
-            boolean result = directory.mkdirs();
-            log.debug("Dirs Created: {}", result);
-            file.transferTo(new File(dirPath + "/" + fileName));
+            StreamingUploadUtil.StoredFile file = StreamingUploadUtil.storeFile(request, "file",
+                jHipsterProperties.getWorkdir().getMaxFileSize(), fileServerService);
+            log.debug("Saved file of form: {}, hash: {}", file.getName(), file.getHash());
+            return file;
         } catch (IOException e) {
-            log.error("Error saving file for form: {}, file:{}", id, fileName, e);
+            log.error("Error saving file for form", e);
             throw new RuntimeException(e);
         }
-        form.setFile(fileName);
-        formService.save(form);
     }
 
-    private Form createForm(String fileName) {
+    private Form createForm(String fileName, String hash) {
         Form form = new Form();
-        form.setFile(fileName);
         form.setCreationTime(ZonedDateTime.now());
         form.setIsActive(IS_ACTIVE);
-        formService.save(form);
-        return form;
+        return formService.saveFile(form, fileName, hash);
     }
 
+    private Optional<File> getFile(Form form) {
+        if (form.getFileHash() != null) {
+            return fileServerService.get(form.getFileHash());
+        }
+        // forms uploaded before the content-addressed storage
+        return Optional.of(new File(fileServerService.getPath() + FORMS_PATH + form.getId() + "/" +
+            form.getFile()));
+    }
 }
-
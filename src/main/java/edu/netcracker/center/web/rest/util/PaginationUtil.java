@@ -1,6 +1,14 @@
 package edu.netcracker.center.web.rest.util;
 
+import edu.netcracker.center.service.util.Keyset;
+import edu.netcracker.center.service.util.KeysetSlice;
+import edu.netcracker.center.web.rest.errors.CustomParameterizedException;
+import org.apache.commons.lang.StringUtils;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 
 import java.net.URI;
@@ -13,9 +21,27 @@ import java.net.URISyntaxException;
  * Pagination uses the same principles as the <a href="https://developer.github.com/v3/#pagination">Github API</api>,
  * and follow <a href="http://tools.ietf.org/html/rfc5988">RFC 5988 (Link header)</a>.
  * </p>
+ *
+ * <p>
+ * Slices are requested with "count=false": they have no total count and no last link, so no count query is run.
+ * Keyset pagination is requested with a "cursor" parameter, empty for the first page. Its links carry opaque cursors
+ * and there is no total count, so no count query is run.
+ * </p>
  */
 public class PaginationUtil {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    /**
+     * No pageable is resolved for a request without page and size, see WebMvcConfiguration. Pages that can not be
+     * read whole use the first page of the default size sorted by id instead.
+     *
+     * @return the pageable, or the default one if it is null
+     */
+    public static Pageable defaultPageable(Pageable pageable) {
+        return pageable != null ? pageable : new PageRequest(0, DEFAULT_PAGE_SIZE, Sort.Direction.ASC, "id");
+    }
+
     public static HttpHeaders generatePaginationHttpHeaders(Page<?> page, String baseUrl)
         throws URISyntaxException {
 
@@ -39,4 +65,67 @@ public class PaginationUtil {
         headers.add(HttpHeaders.LINK, link);
         return headers;
     }
+
+    public static HttpHeaders generateSliceHttpHeaders(Slice<?> slice, String baseUrl)
+        throws URISyntaxException {
+
+        HttpHeaders headers = new HttpHeaders();
+        String link = "";
+        if (slice.hasNext()) {
+            link = "<" + (new URI(baseUrl +"?page=" + (slice.getNumber() + 1) + "&size=" + slice.getSize() + "&count=false")).toString() + ">; rel=\"next\",";
+        }
+        // prev link
+        if (slice.hasPrevious()) {
+            link += "<" + (new URI(baseUrl +"?page=" + (slice.getNumber() - 1) + "&size=" + slice.getSize() + "&count=false")).toString() + ">; rel=\"prev\",";
+        }
+        link += "<" + (new URI(baseUrl +"?page=" + 0 + "&size=" + slice.getSize() + "&count=false")).toString() + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    /**
+     * @param nextLastId the id of the last row, or null if this is the last page
+     */
+    public static HttpHeaders generateLastIdHttpHeaders(Slice<?> slice, Long nextLastId, String baseUrl)
+        throws URISyntaxException {
+
+        HttpHeaders headers = new HttpHeaders();
+        String link = "";
+        if (nextLastId != null) {
+            link = "<" + (new URI(baseUrl + "?lastId=" + nextLastId + "&size=" + slice.getSize())).toString() + ">; rel=\"next\",";
+        }
+        link += "<" + (new URI(baseUrl + "?lastId=&size=" + slice.getSize())).toString() + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
+
+    /**
+     * @return the keyset of the cursor, or the position before the first row in the sort of the pageable if the
+     * cursor is empty
+     */
+    public static Keyset parseCursor(String cursor, Pageable pageable) {
+        if (StringUtils.isEmpty(cursor)) {
+            return Keyset.first(pageable.getSort());
+        }
+        try {
+            return Keyset.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new CustomParameterizedException("invalidCursor", cursor);
+        }
+    }
+
+    public static HttpHeaders generateKeysetHttpHeaders(KeysetSlice<?> slice, String baseUrl)
+        throws URISyntaxException {
+
+        HttpHeaders headers = new HttpHeaders();
+        String link = "";
+        if (slice.getNext() != null) {
+            link = "<" + (new URI(baseUrl + "?cursor=" + slice.getNext().encode() + "&size=" + slice.getSize())).toString() + ">; rel=\"next\",";
+        }
+        Keyset keyset = slice.getKeyset();
+        String sort = keyset.getProperty() + "," + keyset.getDirection().name().toLowerCase();
+        link += "<" + (new URI(baseUrl + "?cursor=&size=" + slice.getSize() + "&sort=" + sort)).toString() + ">; rel=\"first\"";
+        headers.add(HttpHeaders.LINK, link);
+        return headers;
+    }
 }
@@ -1,27 +1,28 @@
 package edu.netcracker.center.web.rest.util;
 
 import com.codahale.metrics.annotation.Timed;
+import edu.netcracker.center.config.JHipsterProperties;
 import edu.netcracker.center.domain.Recall;
 import edu.netcracker.center.service.FileServerService;
 import edu.netcracker.center.service.RecallService;
 import org.apache.catalina.util.URLEncoder;
-import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.support.MissingServletRequestPartException;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Optional;
 
 /**
  * REST controller for managing files of Recall.
@@ -39,6 +40,9 @@ public class RecallFileResource {
     @Inject
     FileServerService fileServerService;
 
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
     /**
      * GET  /recalls/file/:id -> get recalls file by "id".
      */
@@ -46,21 +50,17 @@ public class RecallFileResource {
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public void downloadFile(@PathVariable Long id, HttpServletResponse response) {
+    public void downloadFile(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
         log.debug("REST request to get file of Recall by id: {}", id);
         Recall recall = recallService.findOne(id);
-        String filePath = fileServerService.getPath() + RECALL_PATH + recall.getId() + "/" + recall.getFile();
-        log.debug("File path: {}", filePath);
-        try (InputStream is = new FileInputStream(filePath)) {
-            String fileName = java.net.URLEncoder.encode(recall.getFile(), "UTF-8");
-            response.setContentType("application/msword");
-            response.setHeader("Content-Disposition", "attachment; filename=" + fileName);
-            IOUtils.copy(is, response.getOutputStream());
-            response.flushBuffer();
-        } catch (IOException e) {
-            log.info("Error getting file for recall: {}, file:{}", recall.getId(), recall.getFile());
-            throw new RuntimeException(e);
+        Optional<File> file = getFile(recall);
+        log.debug("File path: {}", file);
+        if (!file.isPresent()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        FileDownloadUtil.sendFile(file.get(), recall.getFile(), "application/msword", request, response);
     }
 
     /**
@@ -70,29 +70,37 @@ public class RecallFileResource {
         method = RequestMethod.POST,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Recall> saveFile(@RequestParam("file") MultipartFile file, @PathVariable Long id)
-        throws URISyntaxException {
+    public ResponseEntity<Recall> saveFile(HttpServletRequest request, @PathVariable Long id)
+        throws URISyntaxException, MissingServletRequestPartException {
         Recall recall = recallService.findOne(id);
-        String fileName = file.getOriginalFilename();
-        String dirPath = fileServerService.getPath() + RECALL_PATH + id;
-        log.debug("REST request to save file of Recall by id: {}, to path: {}, fileName: {}", id, dirPath,
-            fileName);
+        log.debug("REST request to save file of Recall by id: {}", id);
+        if (recall == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        StreamingUploadUtil.StoredFile file;
         try {
-            File directory = new File(dirPath);
-            boolean result = directory.mkdirs();
-            log.debug("Dirs Created: {}", result);
-            file.transferTo(new File(dirPath + "/" + fileName));
+            file = StreamingUploadUtil.storeFile(request, "file", jHipsterProperties.getWorkdir().getMaxFileSize(),
+                fileServerService);
         } catch (IOException e) {
-            log.error("Error saving file for recall: {}, file:{}", id, fileName, e);
+            log.error("Error saving file for recall: {}", id, e);
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert("recall",
                 "fileUpload", "Не удалось загрузить файл")).body(recall);
         }
-        recall.setFile(fileName);
-        recall = recallService.save(recall);
+        recall = recallService.saveFile(id, file.getName(), file.getHash());
+        if (recall == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
         return ResponseEntity.created(new URI("/api/recalls/" + recall.getId()))
             .headers(HeaderUtil.createEntityUpdateAlert("recall", recall.getId().toString()))
             .body(recall);
     }
 
-
+    private Optional<File> getFile(Recall recall) {
+        if (recall.getFileHash() != null) {
+            return fileServerService.get(recall.getFileHash());
+        }
+        // recalls uploaded before the content-addressed storage
+        return Optional.of(new File(fileServerService.getPath() + RECALL_PATH + recall.getId() + "/" +
+            recall.getFile()));
+    }
 }
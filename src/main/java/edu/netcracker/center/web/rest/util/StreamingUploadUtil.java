@@ -0,0 +1,101 @@
+package edu.netcracker.center.web.rest.util;
+
+import edu.netcracker.center.service.FileServerService;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartException;
+import org.springframework.web.multipart.support.MissingServletRequestPartException;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Utility class for uploads streamed from the request body directly into the {@link FileServerService}.
+ *
+ * <p>
+ * Requests to the streaming paths are not resolved by the multipart resolver, so the body is neither buffered
+ * in memory nor spooled to a temporary file before it is read here.
+ * </p>
+ */
+public class StreamingUploadUtil {
+
+    private static final String[] STREAMING_PATHS = {"/api/apply/form", "/api/forms/file/*", "/api/recalls/file/*"};
+
+    private static final PathMatcher pathMatcher = new AntPathMatcher();
+
+    private static final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    /**
+     * @return true if the request body is read by {@link #storeFile}
+     */
+    public static boolean isStreamingUpload(HttpServletRequest request) {
+        String path = urlPathHelper.getPathWithinApplication(request);
+        return Arrays.stream(STREAMING_PATHS).anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    /**
+     * Stores the first file of the "fieldName" part, parts before it are skipped.
+     *
+     * @return the stored file
+     */
+    public static StoredFile storeFile(HttpServletRequest request, String fieldName, long maxFileSize,
+                                       FileServerService fileServerService)
+        throws IOException, MissingServletRequestPartException {
+        ServletFileUpload upload = new ServletFileUpload();
+        upload.setFileSizeMax(maxFileSize);
+        upload.setHeaderEncoding("UTF-8");
+        try {
+            FileItemIterator items = upload.getItemIterator(request);
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                if (!item.isFormField() && fieldName.equals(item.getFieldName())) {
+                    try (InputStream in = item.openStream()) {
+                        String hash = fileServerService.put(in);
+                        return new StoredFile(FilenameUtils.getName(item.getName()), hash);
+                    }
+                }
+            }
+        } catch (FileUploadBase.FileUploadIOException e) {
+            if (e.getCause() instanceof FileUploadBase.FileSizeLimitExceededException) {
+                throw new MaxUploadSizeExceededException(maxFileSize, e);
+            }
+            throw new MultipartException("Could not parse multipart servlet request", e);
+        } catch (FileUploadException e) {
+            throw new MultipartException("Could not parse multipart servlet request", e);
+        }
+        throw new MissingServletRequestPartException(fieldName);
+    }
+
+    /**
+     * An uploaded file in the {@link FileServerService}.
+     */
+    public static class StoredFile {
+
+        private final String name;
+
+        private final String hash;
+
+        StoredFile(String name, String hash) {
+            this.name = name;
+            this.hash = hash;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+    }
+}
@@ -1,27 +1,47 @@
 package edu.netcracker.center.web.rest.util;
 
 import com.codahale.metrics.annotation.Timed;
-import com.google.common.collect.Sets;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mysema.query.types.Predicate;
-import com.mysema.query.types.expr.BooleanExpression;
 import edu.netcracker.center.domain.QStudent;
+import edu.netcracker.center.domain.Revision;
 import edu.netcracker.center.domain.Student;
+import edu.netcracker.center.domain.StudentSnapshot;
 import edu.netcracker.center.domain.StudentsSet;
-import edu.netcracker.center.domain.util.OperationResult;
+import edu.netcracker.center.domain.util.ImportJob;
+import edu.netcracker.center.domain.util.StudentsSetVersionListener;
+import edu.netcracker.center.security.AuthoritiesConstants;
 import edu.netcracker.center.service.*;
+import edu.netcracker.center.web.rest.dto.StudentDiffDTO;
+import edu.netcracker.center.web.rest.errors.CustomParameterizedException;
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.StringEscapeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.querydsl.binding.QuerydslPredicate;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.ModelAndView;
 
 import javax.inject.Inject;
-import java.util.Collection;
-import java.util.Date;
-import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * REST controller for managing integrations of Student.
@@ -32,6 +52,13 @@ public class StudentIntegrationResource {
 
     private final Logger log = LoggerFactory.getLogger(StudentIntegrationResource.class);
 
+    public static final String TEXT_CSV_VALUE = "text/csv";
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private static final int EXPORT_BUFFER_SIZE = 8192;
+    private static final String CSV_HEADER = "id,lastName,firstName,middleName,email,phone,learningType,university," +
+        "specialty,faculty,course,curator,comment,groupOfStudent,studentsSet\r\n";
+
     @Inject
     private StudentService studentService;
 
@@ -39,53 +66,349 @@ public class StudentIntegrationResource {
     private HistoryService historyService;
 
     @Inject
-    private ImportService importService;
+    private StudentSnapshotService studentSnapshotService;
+
+    @Inject
+    private RevisionIndexService revisionIndexService;
+
+    @Inject
+    private ImportJobService importJobService;
 
     @Inject
     private StudentsSetService studentsSetService;
 
+    @Inject
+    private ExportCacheService exportCacheService;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
     /**
      * GET  /history/students/:dateTime -> get history of students by "dateTime".
+     * <p>
+     * The students are written to the client as they are read, without loading them all.
      */
     @RequestMapping(value = "/history/students/{dateTime:.+}",
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public List<Student> getHistoryOfStudents(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date dateTime) {
+    public void getHistoryOfStudents(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date dateTime,
+                                     HttpServletResponse response) throws IOException {
         log.debug("REST request to get history of Students by date : {}", dateTime);
-        return historyService.getHistoryOfStudents(dateTime);
+        writeJsonArray((Consumer<Student> consumer) ->
+            historyService.forEachHistoryOfStudents(dateTime, consumer), response);
+    }
+
+    /**
+     * GET  /history/students/diff -> get the changed fields of the students changed between "from" and "to".
+     * <p>
+     * The changes are written to the client as they are computed, without loading them all.
+     */
+    @RequestMapping(value = "/history/students/diff",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public void getDiffOfStudents(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                  HttpServletResponse response) throws IOException {
+        log.debug("REST request to get diff of Students from {} to {}", from, to);
+        if (from.after(to)) {
+            throw new CustomParameterizedException("invalidRange", from.toInstant().toString(),
+                to.toInstant().toString());
+        }
+        writeJsonArray((Consumer<StudentDiffDTO> consumer) ->
+            historyService.forEachDiffOfStudents(from, to, consumer), response);
+    }
+
+    /**
+     * GET  /history/students/:dateTime?lastId= -> get a page of history of students by "dateTime", with an id after
+     * "lastId", or from the first student if "lastId" is empty.
+     */
+    @RequestMapping(value = "/history/students/{dateTime:.+}",
+        method = RequestMethod.GET,
+        params = "lastId",
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Student>> getPageOfHistoryOfStudents(
+        @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date dateTime,
+        @RequestParam(required = false) Long lastId, Pageable pageable) throws URISyntaxException {
+        log.debug("REST request to get a page of history of Students by date : {} after id : {}", dateTime, lastId);
+        Slice<Student> slice = historyService.getHistoryOfStudents(dateTime, lastId,
+            PaginationUtil.defaultPageable(pageable).getPageSize());
+        List<Student> content = slice.getContent();
+        HttpHeaders headers = PaginationUtil.generateLastIdHttpHeaders(slice,
+            slice.hasNext() ? content.get(content.size() - 1).getId() : null,
+            "/api/history/students/" + dateTime.toInstant());
+        return new ResponseEntity<>(content, headers, HttpStatus.OK);
     }
 
     /**
-     * GET  /export/students -> get XSL file with all students.
+     * GET  /history/students/:dateTime -> get newline delimited JSON with history of students by "dateTime".
+     */
+    @RequestMapping(value = "/history/students/{dateTime:.+}",
+        method = RequestMethod.GET,
+        produces = APPLICATION_NDJSON_VALUE)
+    @Timed
+    public void getNdjsonOfHistoryOfStudents(
+        @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date dateTime,
+        HttpServletResponse response) throws IOException {
+        log.debug("REST request to get NDJSON of history of Students by date : {}", dateTime);
+        response.setContentType(APPLICATION_NDJSON_VALUE + ";charset=UTF-8");
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(createWriter(response));
+        generator.setRootValueSeparator(null);
+        try {
+            historyService.forEachHistoryOfStudents(dateTime, student -> {
+                try {
+                    generator.writeObject(student);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.flush();
+    }
+
+    /**
+     * GET  /history/revisions -> get a page of revisions committed between "from" and "to", ordered by date.
+     */
+    @RequestMapping(value = "/history/revisions",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<List<Revision>> getRevisions(
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+        Pageable pageable) throws URISyntaxException {
+        log.debug("REST request to get a page of revisions from {} to {}", from, to);
+        Slice<Revision> slice = revisionIndexService.getRevisions(from, to,
+            PaginationUtil.defaultPageable(pageable));
+        HttpHeaders headers = PaginationUtil.generateSliceHttpHeaders(slice, "/api/history/revisions");
+        return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+    }
+
+    /**
+     * POST  /history/snapshots -> take the snapshot of students read by the history of students.
+     */
+    @RequestMapping(value = "/history/snapshots",
+        method = RequestMethod.POST,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    @Secured(AuthoritiesConstants.ADMIN)
+    public ResponseEntity<StudentSnapshot> createSnapshotOfStudents() {
+        log.debug("REST request to take snapshot of Students");
+        return studentSnapshotService.create()
+            .map(snapshot -> new ResponseEntity<>(snapshot, HttpStatus.OK))
+            .orElse(new ResponseEntity<>(HttpStatus.NO_CONTENT));
+    }
+
+    /**
+     * GET  /export/students -> get XSL file with all active students.
+     */
+    @RequestMapping(value = "/export/students",
+        method = RequestMethod.GET)
+    @Timed
+    public ModelAndView getXslOfStudents() {
+        log.debug("REST request to get XSL of active Students");
+        return new ModelAndView(new StudentXslView(studentService), "predicate", QStudent.student.isActive.eq(true));
+    }
+
+    /**
+     * GET  /export/students/:id -> get XSL file with students of the "id" set.
      */
     @RequestMapping(value = "/export/students/{id}",
         method = RequestMethod.GET)
     @Timed
-    public ModelAndView getXslOfStudents(@PathVariable Long id) {
+    public void getXslOfSet(@PathVariable Long id,
+                            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
         log.debug("REST request to get XSL of Students for Set: {}", id);
-        Predicate predicate;
-        if (id == null) {
-            predicate = QStudent.student.isActive.eq(true);
-            return new ModelAndView(new StudentXslView(), "students", studentService.findAll(predicate));
-        } else {
-            StudentsSet set = studentsSetService.findOne(id);
-            set.setStudents(Sets.newHashSet(studentService.findAll(QStudent.student.studentsSet.eq(set))));
-            return new ModelAndView(new SetXslView(), "set", set);
+        StudentsSet set = studentsSetService.findOne(id);
+        if (set == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        // the version stamp changes with every committed change of a student of the set
+        String version = StudentsSetVersionListener.getVersion(id);
+        String eTag = "\"set-" + id + "-" + version + "\"";
+        if (eTag.equals(ifNoneMatch)) {
+            response.setHeader("ETag", eTag);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        StudentXslView view = new StudentXslView(studentService);
+        File file = exportCacheService.get("set-" + id, version,
+            out -> view.write(QStudent.student.studentsSet.eq(set), out));
+        String currentDate = new SimpleDateFormat("yyyy-MM-dd-HH:mm:ss").format(new Date());
+        // the container sends the cached file with sendfile when it supports it
+        FileDownloadUtil.sendFile(file, set.getName() + "_" + currentDate + ".xlsx", "application/octet-stream",
+            eTag, request, response);
+    }
+
+    /**
+     * GET  /export/students -> get CSV with all active students.
+     */
+    @RequestMapping(value = "/export/students",
+        method = RequestMethod.GET,
+        produces = TEXT_CSV_VALUE)
+    @Timed
+    public void getCsvOfStudents(HttpServletResponse response) throws IOException {
+        log.debug("REST request to get CSV of active Students");
+        writeCsv(QStudent.student.isActive.eq(true), "Students", response);
+    }
+
+    /**
+     * GET  /export/students/:id -> get CSV with students of the "id" set.
+     */
+    @RequestMapping(value = "/export/students/{id}",
+        method = RequestMethod.GET,
+        produces = TEXT_CSV_VALUE)
+    @Timed
+    public void getCsvOfSet(@PathVariable Long id, HttpServletResponse response) throws IOException {
+        log.debug("REST request to get CSV of Students for Set: {}", id);
+        StudentsSet set = studentsSetService.findOne(id);
+        if (set == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        writeCsv(QStudent.student.studentsSet.eq(set), set.getName(), response);
     }
 
     /**
-     * POST  /import/students -> upload file with students for saving.
+     * GET  /export/students -> get newline delimited JSON with all active students.
+     */
+    @RequestMapping(value = "/export/students",
+        method = RequestMethod.GET,
+        produces = APPLICATION_NDJSON_VALUE)
+    @Timed
+    public void getNdjsonOfStudents(HttpServletResponse response) throws IOException {
+        log.debug("REST request to get NDJSON of active Students");
+        writeNdjson(QStudent.student.isActive.eq(true), response);
+    }
+
+    /**
+     * GET  /export/students/:id -> get newline delimited JSON with students of the "id" set.
+     */
+    @RequestMapping(value = "/export/students/{id}",
+        method = RequestMethod.GET,
+        produces = APPLICATION_NDJSON_VALUE)
+    @Timed
+    public void getNdjsonOfSet(@PathVariable Long id, HttpServletResponse response) throws IOException {
+        log.debug("REST request to get NDJSON of Students for Set: {}", id);
+        StudentsSet set = studentsSetService.findOne(id);
+        if (set == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        writeNdjson(QStudent.student.studentsSet.eq(set), response);
+    }
+
+    /**
+     * POST  /import/students/:id -> upload file with students for saving in background, or 503 with the failed job
+     * if the server rejects the import.
      */
     @RequestMapping(value = "/import/students/{id}",
         method = RequestMethod.POST,
         produces = MediaType.APPLICATION_JSON_VALUE)
     @Timed
-    public @ResponseBody Collection<OperationResult> handleImport(@RequestParam("file") MultipartFile file,
-                                                                  @PathVariable Long id) {
+    public ResponseEntity<ImportJob> handleImport(@RequestParam("file") MultipartFile file,
+                                                  @PathVariable Long id) throws URISyntaxException, IOException {
         log.debug("REST request to upload XSL of Students for set: {}", id);
-        return importService.handleImportOfStudents(file, id);
+        ImportJob job = importJobService.submitImportOfStudents(file, id);
+        if (job.isDone()) {
+            // rejected by the server, the reason is in the results of the job
+            return new ResponseEntity<>(job, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return ResponseEntity.accepted()
+            .location(new URI("/api/import/jobs/" + job.getId()))
+            .body(job);
+    }
+
+    /**
+     * GET  /import/jobs/:jobId -> get progress and results of the "jobId" import.
+     */
+    @RequestMapping(value = "/import/jobs/{jobId}",
+        method = RequestMethod.GET,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<ImportJob> getImportJob(@PathVariable String jobId) {
+        log.debug("REST request to get import job : {}", jobId);
+        return importJobService.findOne(jobId)
+            .map(job -> new ResponseEntity<>(job, HttpStatus.OK))
+            .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    private void writeCsv(Predicate predicate, String fileName, HttpServletResponse response) throws IOException {
+        response.setContentType(TEXT_CSV_VALUE + ";charset=UTF-8");
+        response.setHeader("Content-Disposition", FileDownloadUtil.getContentDisposition(fileName + ".csv"));
+        Writer writer = createWriter(response);
+        writer.write(CSV_HEADER);
+        try {
+            studentService.forEachExportRow(predicate, row -> {
+                try {
+                    writer.write(toCsvLine(row.getId(), row.getLastName(), row.getFirstName(), row.getMiddleName(),
+                        row.getEmail(), row.getPhone(), row.getLearningType(), row.getUniversity(),
+                        row.getSpecialty(), row.getFaculty(), row.getCourse(), row.getCurator(), row.getComment(),
+                        row.getGroupOfStudent(), row.getStudentsSet()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeNdjson(Predicate predicate, HttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_NDJSON_VALUE + ";charset=UTF-8");
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(createWriter(response));
+        generator.setRootValueSeparator(null);
+        try {
+            studentService.forEachExportRow(predicate, row -> {
+                try {
+                    generator.writeObject(row);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.flush();
+    }
+
+    private <T> void writeJsonArray(Consumer<Consumer<T>> source, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8");
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(createWriter(response));
+        generator.writeStartArray();
+        try {
+            source.accept(value -> {
+                try {
+                    generator.writeObject(value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.writeEndArray();
+        generator.flush();
+    }
+
+    private Writer createWriter(HttpServletResponse response) throws IOException {
+        // rows are passed to the client every time the small buffer fills up
+        return new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8),
+            EXPORT_BUFFER_SIZE);
+    }
+
+    private String toCsvLine(Object... values) {
+        return Arrays.stream(values)
+            .map(value -> StringEscapeUtils.escapeCsv(ObjectUtils.toString(value)))
+            .collect(Collectors.joining(",", "", "\r\n"));
+    }
 }
@@ -2,7 +2,7 @@
 
 angular.module('jeducenterApp')
     .controller('StudentIntegrationController', function ($scope, $state, $location, tmhDynamicLocale,
-                                                          StudentIntegration) {
+                                                          StudentIntegration, StudentImportJob) {
 
         $scope.getExportFile = function () {
             var importUrl = $location.protocol()+"://"+$location.host()+":"+$location.port()+"/api/export/students/";
@@ -13,14 +13,22 @@ angular.module('jeducenterApp')
             language: tmhDynamicLocale.get()
         });
 
-        var onUpdateSuccess = function (result) {
-            $state.go('report.result', {results: result});
+        var showResults = function (results) {
+            $state.go('report.result', {results: results});
+        };
+
+        var onUpdateSuccess = function (job) {
+            StudentImportJob.waitForResults(job, showResults);
+        };
+
+        var onUpdateError = function (response) {
+            StudentImportJob.uploadFailed(response, showResults);
         };
 
         $scope.uploadExportFile=function (){
             var formData=new FormData();
             formData.append("file",inputFile.get(0).files[0]);
-            StudentIntegration.uploadFile(formData, onUpdateSuccess);
+            StudentIntegration.uploadFile(formData, onUpdateSuccess, onUpdateError);
         };
 
     });
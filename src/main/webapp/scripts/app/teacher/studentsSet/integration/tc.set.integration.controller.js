@@ -2,7 +2,7 @@
 
 angular.module('jeducenterApp')
     .controller('TcSetIntegrationController', function ($scope, $state, $location, tmhDynamicLocale,
-                                                        StudentIntegration, $stateParams, StudentsSet) {
+                                                        StudentIntegration, StudentImportJob, $stateParams, StudentsSet) {
         $scope.studentsSet = {};
         $scope.setId = $stateParams.id;
 
@@ -19,14 +19,22 @@ angular.module('jeducenterApp')
             language: tmhDynamicLocale.get()
         });
 
-        var onUpdateSuccess = function (result) {
-            $state.go('report.result', {results: result});
+        var showResults = function (results) {
+            $state.go('report.result', {results: results});
+        };
+
+        var onUpdateSuccess = function (job) {
+            StudentImportJob.waitForResults(job, showResults);
+        };
+
+        var onUpdateError = function (response) {
+            StudentImportJob.uploadFailed(response, showResults);
         };
 
         $scope.uploadExportFile = function () {
             var formData = new FormData();
             formData.append("file", inputFile.get(0).files[0]);
-            StudentIntegration.uploadFile({id: $scope.setId},formData, onUpdateSuccess);
+            StudentIntegration.uploadFile({id: $scope.setId},formData, onUpdateSuccess, onUpdateError);
         };
 
     });
@@ -10,12 +10,64 @@ angular.module('jeducenterApp')
                     transformRequest: function (data) {
                         return data;
                     },
-                    isArray: true,
                     transformResponse: function (data) {
                         data = angular.fromJson(data);
                         return data;
                     }
+                },
+                'getJob': {
+                    method: 'GET',
+                    url: 'api/import/jobs/:jobId'
                 }
             });
-    });
+    })
+    .factory('StudentImportJob', function ($timeout, StudentIntegration) {
+        var POLL_INTERVAL = 1000;
+        var MAX_POLL_ERRORS = 5;
+
+        // the results of an import that can not be followed any more
+        var failure = function (message, response) {
+            return [{identifier: '1', message: message, description: response.status + ' ' + (response.statusText || '')}];
+        };
 
+        return {
+            // polls the import job until it is done and passes its results to the callback
+            waitForResults: function (job, onDone) {
+                var errors = 0;
+                var schedule = function (jobId) {
+                    $timeout(function () {
+                        StudentIntegration.getJob({jobId: jobId}, poll, function (response) {
+                            onError(jobId, response);
+                        });
+                    }, POLL_INTERVAL);
+                };
+                var poll = function (current) {
+                    errors = 0;
+                    if (current.done) {
+                        onDone(current.results);
+                    } else {
+                        schedule(current.id);
+                    }
+                };
+                var onError = function (jobId, response) {
+                    if (response.status === 404) {
+                        // the job is evicted or the server is restarted
+                        onDone(failure('Импорт не найден, проверьте список студентов', response));
+                    } else if (++errors >= MAX_POLL_ERRORS) {
+                        onDone(failure('Неудалось получить результаты импорта', response));
+                    } else {
+                        schedule(jobId);
+                    }
+                };
+                poll(job);
+            },
+            // passes the results of an upload rejected by the server to the callback
+            uploadFailed: function (response, onDone) {
+                if (response.data && response.data.results) {
+                    onDone(response.data.results);
+                } else {
+                    onDone(failure('Неудалось загрузить файл', response));
+                }
+            }
+        };
+    });
@@ -0,0 +1,164 @@
+package edu.netcracker.center.domain.util;
+
+import edu.netcracker.center.domain.Revision;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the RevisionIndex.
+ *
+ * @see RevisionIndex
+ */
+public class RevisionIndexUnitTest {
+
+    private RevisionIndex index;
+
+    @Before
+    public void setUp() {
+        index = new RevisionIndex();
+    }
+
+    @Test
+    public void testEmptyIndex() {
+        assertThat(index.isLoaded()).isFalse();
+        assertThat(index.findRevision(Long.MAX_VALUE)).isEqualTo(Optional.empty());
+        assertThat(index.findRevisions(Long.MIN_VALUE, Long.MAX_VALUE, 0, 10)).isEmpty();
+    }
+
+    @Test
+    public void testAppend() {
+        index.add(1, 100);
+        index.add(2, 200);
+        index.add(3, 300);
+        assertThat(index.findRevisions(Long.MIN_VALUE, Long.MAX_VALUE, 0, 10))
+            .containsExactly(new Revision(1, 100), new Revision(2, 200), new Revision(3, 300));
+    }
+
+    @Test
+    public void testFindRevision() {
+        index.add(1, 100);
+        index.add(2, 200);
+        index.add(3, 300);
+        assertThat(index.findRevision(99)).isEqualTo(Optional.empty());
+        assertThat(index.findRevision(100)).isEqualTo(Optional.of(1));
+        assertThat(index.findRevision(250)).isEqualTo(Optional.of(2));
+        assertThat(index.findRevision(300)).isEqualTo(Optional.of(3));
+        assertThat(index.findRevision(Long.MAX_VALUE)).isEqualTo(Optional.of(3));
+    }
+
+    @Test
+    public void testLateInsert() {
+        index.add(1, 100);
+        index.add(3, 300);
+        // committed after the revision 3
+        index.add(2, 200);
+        assertThat(index.findRevisions(Long.MIN_VALUE, Long.MAX_VALUE, 0, 10))
+            .containsExactly(new Revision(1, 100), new Revision(2, 200), new Revision(3, 300));
+        assertThat(index.findRevision(250)).isEqualTo(Optional.of(2));
+    }
+
+    @Test
+    public void testLateInsertOfEarlierTimestamp() {
+        // the revision 3 has an earlier timestamp than the revision 2
+        index.add(1, 100);
+        index.add(2, 300);
+        index.add(3, 200);
+        assertThat(index.findRevisions(Long.MIN_VALUE, Long.MAX_VALUE, 0, 10))
+            .containsExactly(new Revision(1, 100), new Revision(3, 200), new Revision(2, 300));
+        // the greatest revision not after the date, as AuditReader.getRevisionNumberForDate
+        assertThat(index.findRevision(150)).isEqualTo(Optional.of(1));
+        assertThat(index.findRevision(250)).isEqualTo(Optional.of(3));
+        assertThat(index.findRevision(300)).isEqualTo(Optional.of(3));
+    }
+
+    @Test
+    public void testSameTimestamp() {
+        index.add(2, 100);
+        index.add(1, 100);
+        assertThat(index.findRevisions(Long.MIN_VALUE, Long.MAX_VALUE, 0, 10))
+            .containsExactly(new Revision(1, 100), new Revision(2, 100));
+        assertThat(index.findRevision(100)).isEqualTo(Optional.of(2));
+    }
+
+    @Test
+    public void testDuplicateAdd() {
+        index.add(1, 100);
+        index.add(2, 200);
+        // loaded at startup and added by the listener
+        index.add(2, 200);
+        index.add(1, 100);
+        assertThat(index.findRevisions(Long.MIN_VALUE, Long.MAX_VALUE, 0, 10))
+            .containsExactly(new Revision(1, 100), new Revision(2, 200));
+    }
+
+    @Test
+    public void testGrowth() {
+        int count = 3000;
+        for (int i = 1; i <= count; i++) {
+            index.add(i, i * 10L);
+        }
+        assertThat(index.findRevision(count * 10L)).isEqualTo(Optional.of(count));
+        assertThat(index.findRevision(15)).isEqualTo(Optional.of(1));
+        assertThat(index.findRevisions(Long.MIN_VALUE, Long.MAX_VALUE, 0, Integer.MAX_VALUE / 2)).hasSize(count);
+    }
+
+    @Test
+    public void testFindRevisionsInRange() {
+        index.add(1, 100);
+        index.add(2, 200);
+        index.add(3, 300);
+        index.add(4, 400);
+        // both bounds are included
+        assertThat(index.findRevisions(200, 300, 0, 10))
+            .containsExactly(new Revision(2, 200), new Revision(3, 300));
+        assertThat(index.findRevisions(150, 350, 0, 10))
+            .containsExactly(new Revision(2, 200), new Revision(3, 300));
+        assertThat(index.findRevisions(300, 300, 0, 10)).containsExactly(new Revision(3, 300));
+        assertThat(index.findRevisions(Long.MIN_VALUE, 100, 0, 10)).containsExactly(new Revision(1, 100));
+        assertThat(index.findRevisions(400, Long.MAX_VALUE, 0, 10)).containsExactly(new Revision(4, 400));
+    }
+
+    @Test
+    public void testFindRevisionsFromAfterTo() {
+        index.add(1, 100);
+        index.add(2, 200);
+        index.add(3, 300);
+        assertThat(index.findRevisions(300, 100, 0, 10)).isEmpty();
+        assertThat(index.findRevisions(250, 210, 0, 10)).isEmpty();
+    }
+
+    @Test
+    public void testFindRevisionsWithOffset() {
+        index.add(1, 100);
+        index.add(2, 200);
+        index.add(3, 300);
+        index.add(4, 400);
+        assertThat(index.findRevisions(200, Long.MAX_VALUE, 1, 10))
+            .containsExactly(new Revision(3, 300), new Revision(4, 400));
+        assertThat(index.findRevisions(Long.MIN_VALUE, Long.MAX_VALUE, 1, 2))
+            .containsExactly(new Revision(2, 200), new Revision(3, 300));
+        assertThat(index.findRevisions(Long.MIN_VALUE, Long.MAX_VALUE, 3, 2)).containsExactly(new Revision(4, 400));
+    }
+
+    @Test
+    public void testFindRevisionsWithOffsetPastEnd() {
+        index.add(1, 100);
+        index.add(2, 200);
+        index.add(3, 300);
+        assertThat(index.findRevisions(Long.MIN_VALUE, Long.MAX_VALUE, 3, 10)).isEmpty();
+        assertThat(index.findRevisions(Long.MIN_VALUE, Long.MAX_VALUE, 100, 10)).isEmpty();
+        // past the end of the range, not of the index
+        assertThat(index.findRevisions(100, 200, 2, 10)).isEmpty();
+        assertThat(index.findRevisions(100, 200, 5, 10)).isEmpty();
+    }
+
+    @Test
+    public void testSetLoaded() {
+        index.setLoaded();
+        assertThat(index.isLoaded()).isTrue();
+    }
+}
@@ -0,0 +1,161 @@
+package edu.netcracker.center.repository;
+
+import com.mysema.query.jpa.impl.JPAQuery;
+import com.mysema.query.types.EntityPath;
+import edu.netcracker.center.Application;
+import edu.netcracker.center.domain.*;
+import edu.netcracker.center.domain.enumeration.MailStatusEnumeration;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.internal.ast.ASTQueryTranslatorFactory;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the query plans of the hot repository predicates.
+ * <p>
+ * The SQL generated for each predicate is explained by H2, the test fails when a table is scanned instead of
+ * an index being used.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@IntegrationTest
+@Transactional
+public class QueryPlanIntTest {
+
+    private static final String TABLE_SCAN = ".tableScan";
+
+    @Inject
+    private EntityManager entityManager;
+
+    @Test
+    public void studentsOfCuratorUseIndex() {
+        QStudent student = QStudent.student;
+        Curator curator = new Curator();
+        curator.setId(1L);
+        String plan = explain(new JPAQuery(entityManager).from(student)
+            .where(student.curator.eq(curator).and(student.isActive.eq(true)))
+            .orderBy(student.id.asc()), student, 1L, true);
+        assertThat(plan).doesNotContain(TABLE_SCAN).contains("IDX_STUDENT_CURATOR_ACTIVE");
+    }
+
+    @Test
+    public void studentOfUserUsesIndex() {
+        QStudent student = QStudent.student;
+        User user = new User();
+        user.setId(1L);
+        String plan = explain(new JPAQuery(entityManager).from(student)
+            .where(student.user.eq(user)), student, 1L);
+        // the unique key of user_id is unnamed, the condition of the index is checked instead
+        assertThat(plan).doesNotContain(TABLE_SCAN).contains(": USER_ID = ?");
+    }
+
+    @Test
+    public void studentsOfSetUseIndex() {
+        QStudent student = QStudent.student;
+        StudentsSet studentsSet = new StudentsSet();
+        studentsSet.setId(1L);
+        String plan = explain(new JPAQuery(entityManager).from(student)
+            .where(student.studentsSet.eq(studentsSet).and(student.isActive.eq(true)))
+            .orderBy(student.id.asc()), student, 1L, true);
+        assertThat(plan).doesNotContain(TABLE_SCAN).contains("IDX_STUDENT_SET_ACTIVE");
+    }
+
+    @Test
+    public void activeStudentsUseIndex() {
+        QStudent student = QStudent.student;
+        String plan = explain(new JPAQuery(entityManager).from(student)
+            .where(student.isActive.eq(true))
+            .orderBy(student.id.asc()), student, true);
+        assertThat(plan).doesNotContain(TABLE_SCAN).contains("IDX_STUDENT_ACTIVE");
+    }
+
+    @Test
+    public void studentByEmailUsesIndex() {
+        QStudent student = QStudent.student;
+        String plan = explain(new JPAQuery(entityManager).from(student)
+            .where(student.email.eq("student@localhost")), student, "student@localhost");
+        assertThat(plan).doesNotContain(TABLE_SCAN).contains("IDX_STUDENT_EMAIL");
+    }
+
+    @Test
+    public void userByLoginUsesIndex() {
+        QUser user = QUser.user;
+        String plan = explain(new JPAQuery(entityManager).from(user)
+            .where(user.login.eq("user")), user, "user");
+        // the unique key and the unique index of login are equally cheap, the condition of the index is checked
+        assertThat(plan).doesNotContain(TABLE_SCAN).contains(": LOGIN = ?");
+    }
+
+    @Test
+    public void userByEmailUsesIndex() {
+        QUser user = QUser.user;
+        String plan = explain(new JPAQuery(entityManager).from(user)
+            .where(user.email.eq("user@localhost")), user, "user@localhost");
+        // the unique key and the unique index of e-mail are equally cheap, the condition of the index is checked
+        assertThat(plan).doesNotContain(TABLE_SCAN).contains(": EMAIL = ?");
+    }
+
+    @Test
+    public void dueMailsUseIndex() {
+        QOutboundMail outboundMail = QOutboundMail.outboundMail;
+        ZonedDateTime now = ZonedDateTime.now();
+        String plan = explain(new JPAQuery(entityManager).from(outboundMail)
+            .where(outboundMail.status.eq(MailStatusEnumeration.PENDING)
+                .and(outboundMail.nextAttemptTime.before(now)))
+            .orderBy(outboundMail.id.asc()), outboundMail,
+            MailStatusEnumeration.PENDING.name(), Timestamp.from(now.toInstant()));
+        assertThat(plan).doesNotContain(TABLE_SCAN).contains("IDX_OUTBOUND_MAIL_STATUS");
+    }
+
+    @Test
+    public void releasedBlobsUseIndex() {
+        QFileBlob fileBlob = QFileBlob.fileBlob;
+        ZonedDateTime now = ZonedDateTime.now();
+        String plan = explain(new JPAQuery(entityManager).from(fileBlob)
+            .where(fileBlob.refCount.eq(0).and(fileBlob.releaseTime.before(now))), fileBlob,
+            0, Timestamp.from(now.toInstant()));
+        assertThat(plan).doesNotContain(TABLE_SCAN).contains("IDX_FILE_BLOB_REF_COUNT");
+    }
+
+    /**
+     * Translates the query to SQL and explains it with the parameters bound in the order of the predicate.
+     */
+    private String explain(JPAQuery query, EntityPath<?> entity, Object... parameters) {
+        String hql = query.createQuery(entity).unwrap(org.hibernate.Query.class).getQueryString();
+        Session session = entityManager.unwrap(Session.class);
+        SessionFactoryImplementor sessionFactory = (SessionFactoryImplementor) session.getSessionFactory();
+        QueryTranslator translator = new ASTQueryTranslatorFactory()
+            .createQueryTranslator(hql, hql, Collections.emptyMap(), sessionFactory, null);
+        translator.compile(Collections.emptyMap(), false);
+        String sql = translator.getSQLString();
+        return session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,167 @@
+package edu.netcracker.center.service;
+
+import edu.netcracker.center.Application;
+import edu.netcracker.center.domain.FileBlob;
+import edu.netcracker.center.repository.FileBlobRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the reference counts and the garbage collection of FileServerService.
+ * <p>
+ * References are committed in their own transactions, so the stored contents are deleted after the test.
+ *
+ * @see FileServerService
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@IntegrationTest
+public class FileServerServiceIntTest {
+
+    @Inject
+    private FileServerService fileServerService;
+
+    @Inject
+    private FileBlobRepository fileBlobRepository;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private List<String> hashes = new ArrayList<>();
+
+    @Before
+    public void initTest() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @After
+    public void deleteContents() {
+        for (String hash : hashes) {
+            fileServerService.get(hash).ifPresent(File::delete);
+            if (fileBlobRepository.exists(hash)) {
+                fileBlobRepository.delete(hash);
+            }
+        }
+        hashes.clear();
+    }
+
+    @Test
+    public void testPutSameContentTwice() throws Exception {
+        String content = createContent();
+        String hash = put(content);
+
+        assertThat(put(content)).isEqualTo(hash);
+        FileBlob blob = fileServerService.stat(hash).get();
+        assertThat(blob.getRefCount()).isEqualTo(2);
+        assertThat(blob.getSize()).isEqualTo(content.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(fileServerService.get(hash).isPresent()).isTrue();
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        String hash = put(createContent());
+
+        fileServerService.delete(hash);
+
+        FileBlob blob = fileServerService.stat(hash).get();
+        assertThat(blob.getRefCount()).isEqualTo(0);
+        assertThat(blob.getReleaseTime()).isNotNull();
+        // the count never goes below zero
+        fileServerService.delete(hash);
+        assertThat(fileServerService.stat(hash).get().getRefCount()).isEqualTo(0);
+        // the content is kept until it is collected
+        assertThat(fileServerService.get(hash).isPresent()).isTrue();
+    }
+
+    @Test
+    public void testPutAfterDelete() throws Exception {
+        String content = createContent();
+        String hash = put(content);
+        fileServerService.delete(hash);
+
+        put(content);
+
+        FileBlob blob = fileServerService.stat(hash).get();
+        assertThat(blob.getRefCount()).isEqualTo(1);
+        assertThat(blob.getReleaseTime()).isNull();
+    }
+
+    @Test
+    public void testReleaseOnRollback() throws Exception {
+        String rolledBack = put(createContent());
+        String committed = put(createContent());
+
+        transactionTemplate.execute(status -> {
+            fileServerService.releaseOnRollback(rolledBack);
+            status.setRollbackOnly();
+            return null;
+        });
+        transactionTemplate.execute(status -> {
+            fileServerService.releaseOnRollback(committed);
+            return null;
+        });
+
+        assertThat(fileServerService.stat(rolledBack).get().getRefCount()).isEqualTo(0);
+        assertThat(fileServerService.stat(committed).get().getRefCount()).isEqualTo(1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseOnRollbackWithoutTransaction() throws Exception {
+        fileServerService.releaseOnRollback(put(createContent()));
+    }
+
+    @Test
+    public void testCollectGarbage() throws Exception {
+        String referenced = put(createContent());
+        String released = put(createContent());
+        String expired = put(createContent());
+        fileServerService.delete(released);
+        fileServerService.delete(expired);
+        FileBlob blob = fileBlobRepository.findOne(expired);
+        blob.setReleaseTime(ZonedDateTime.now().minusDays(2));
+        fileBlobRepository.save(blob);
+
+        fileServerService.collectGarbage();
+
+        assertThat(fileServerService.stat(expired).isPresent()).isFalse();
+        assertThat(fileServerService.get(expired).isPresent()).isFalse();
+        // released within the grace period
+        assertThat(fileServerService.stat(released).isPresent()).isTrue();
+        assertThat(fileServerService.get(released).isPresent()).isTrue();
+        assertThat(fileServerService.stat(referenced).get().getRefCount()).isEqualTo(1);
+        assertThat(fileServerService.get(referenced).isPresent()).isTrue();
+    }
+
+    private String createContent() {
+        return "content " + UUID.randomUUID();
+    }
+
+    private String put(String content) throws IOException {
+        String hash = fileServerService.put(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        hashes.add(hash);
+        return hash;
+    }
+}
@@ -0,0 +1,181 @@
+package edu.netcracker.center.service;
+
+import edu.netcracker.center.Application;
+import edu.netcracker.center.domain.Student;
+import edu.netcracker.center.domain.enumeration.UniversityEnumeration;
+import edu.netcracker.center.repository.LearningTypeRepository;
+import edu.netcracker.center.repository.StudentRepository;
+import edu.netcracker.center.web.rest.dto.StudentDiffDTO;
+import org.hibernate.envers.RevisionType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the HistoryService.
+ * <p>
+ * Audit rows are written on commit, so every change is committed in its own transaction and the students and their
+ * audit rows are deleted after the test.
+ *
+ * @see HistoryService
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@IntegrationTest
+public class HistoryServiceIntTest {
+
+    // revision timestamps are in milliseconds, dates are taken apart from them
+    private static final long PAUSE_MILLIS = 20;
+
+    @Inject
+    private HistoryService historyService;
+
+    @Inject
+    private StudentRepository studentRepository;
+
+    @Inject
+    private LearningTypeRepository learningTypeRepository;
+
+    @Inject
+    private EntityManager entityManager;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private List<Long> createdIds = new ArrayList<>();
+
+    @Before
+    public void initTest() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @After
+    public void deleteStudents() {
+        inTransaction(() -> createdIds.stream()
+            .filter(studentRepository::exists)
+            .forEach(studentRepository::delete));
+        inTransaction(() -> createdIds.forEach(id ->
+            entityManager.createNativeQuery("delete from student_aud where id = :id")
+                .setParameter("id", id)
+                .executeUpdate()));
+        createdIds.clear();
+    }
+
+    @Test
+    public void testDiffOfStudents() throws Exception {
+        Long modifiedId = createStudent("Modified");
+        Long deletedId = createStudent("Deleted");
+        Long revertedId = createStudent("Reverted");
+        Date from = pause();
+
+        Long addedId = createStudent("Added");
+        inTransaction(() -> {
+            Student modified = studentRepository.findOne(modifiedId);
+            modified.setLastName("Changed");
+            modified.setPhone("89001234567");
+            studentRepository.delete(deletedId);
+            studentRepository.findOne(revertedId).setComment("Changed");
+        });
+        pause();
+        inTransaction(() -> studentRepository.findOne(revertedId).setComment(null));
+        Date to = pause();
+
+        Map<Long, StudentDiffDTO> diffs = getDiffs(from, to);
+
+        StudentDiffDTO added = diffs.get(addedId);
+        assertThat(added).isNotNull();
+        assertThat(added.getType()).isEqualTo(RevisionType.ADD);
+        assertThat(added.getFields().get("lastName").getFrom()).isNull();
+        assertThat(added.getFields().get("lastName").getTo()).isEqualTo("Added");
+
+        StudentDiffDTO modified = diffs.get(modifiedId);
+        assertThat(modified).isNotNull();
+        assertThat(modified.getType()).isEqualTo(RevisionType.MOD);
+        assertThat(modified.getFields().keySet()).containsOnly("lastName", "phone");
+        assertThat(modified.getFields().get("lastName").getFrom()).isEqualTo("Modified");
+        assertThat(modified.getFields().get("lastName").getTo()).isEqualTo("Changed");
+        assertThat(modified.getFields().get("phone").getFrom()).isNull();
+        assertThat(modified.getFields().get("phone").getTo()).isEqualTo("89001234567");
+
+        StudentDiffDTO deleted = diffs.get(deletedId);
+        assertThat(deleted).isNotNull();
+        assertThat(deleted.getType()).isEqualTo(RevisionType.DEL);
+        assertThat(deleted.getFields().get("lastName").getFrom()).isEqualTo("Deleted");
+        assertThat(deleted.getFields().get("lastName").getTo()).isNull();
+
+        // changed and changed back between the dates
+        assertThat(diffs).doesNotContainKey(revertedId);
+    }
+
+    @Test
+    public void testDiffOfStudentsBeforeChanges() throws Exception {
+        Date from = pause();
+        Long modifiedId = createStudent("Modified");
+        Date to = pause();
+        inTransaction(() -> studentRepository.findOne(modifiedId).setLastName("Changed"));
+        pause();
+
+        Map<Long, StudentDiffDTO> diffs = getDiffs(from, to);
+
+        // the change after "to" is not seen
+        assertThat(diffs.get(modifiedId).getType()).isEqualTo(RevisionType.ADD);
+        assertThat(diffs.get(modifiedId).getFields().get("lastName").getTo()).isEqualTo("Modified");
+        assertThat(getDiffs(to, to)).isEmpty();
+    }
+
+    private Map<Long, StudentDiffDTO> getDiffs(Date from, Date to) {
+        Map<Long, StudentDiffDTO> diffs = new LinkedHashMap<>();
+        Consumer<StudentDiffDTO> consumer = diff -> diffs.put(diff.getId(), diff);
+        historyService.forEachDiffOfStudents(from, to, consumer);
+        // the students of the other tests are left out
+        diffs.keySet().retainAll(createdIds);
+        return diffs;
+    }
+
+    private Long createStudent(String lastName) {
+        Student student = new Student();
+        student.setLastName(lastName);
+        student.setFirstName("AAAAA");
+        student.setEmail(lastName.toLowerCase() + "@localhost");
+        student.setUniversity(UniversityEnumeration.СГТУ);
+        student.setIsActive(true);
+        student.setGotJob(false);
+        inTransaction(() -> {
+            student.setLearningType(learningTypeRepository.findOne(1L));
+            studentRepository.save(student);
+        });
+        createdIds.add(student.getId());
+        return student.getId();
+    }
+
+    private void inTransaction(Runnable action) {
+        transactionTemplate.execute(status -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private Date pause() throws InterruptedException {
+        Thread.sleep(PAUSE_MILLIS);
+        Date date = new Date();
+        Thread.sleep(PAUSE_MILLIS);
+        return date;
+    }
+}
@@ -0,0 +1,87 @@
+package edu.netcracker.center.service;
+
+import edu.netcracker.center.config.JHipsterProperties;
+import edu.netcracker.center.domain.util.ImportJob;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test class for the capacity of the ImportJobService.
+ *
+ * @see ImportJobService
+ */
+public class ImportJobServiceUnitTest {
+
+    private static final int CAPACITY = 2;
+
+    private ImportJobService importJobService;
+
+    // the submitted imports are run by the test
+    private List<Runnable> tasks = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getIntegration().setJobsCapacity(CAPACITY);
+        importJobService = new ImportJobService();
+        ReflectionTestUtils.setField(importJobService, "importService", mock(ImportService.class));
+        ReflectionTestUtils.setField(importJobService, "jHipsterProperties", jHipsterProperties);
+        ReflectionTestUtils.setField(importJobService, "taskExecutor", (Executor) tasks::add);
+    }
+
+    @After
+    public void runTasks() {
+        // the temporary files are deleted by the imports
+        tasks.forEach(Runnable::run);
+        tasks.clear();
+    }
+
+    @Test
+    public void testRejectOverCapacity() throws IOException {
+        ImportJob first = submit();
+        ImportJob second = submit();
+
+        ImportJob rejected = submit();
+
+        assertThat(first.getStatus()).isEqualTo(ImportJob.Status.QUEUED);
+        assertThat(second.getStatus()).isEqualTo(ImportJob.Status.QUEUED);
+        assertThat(rejected.getStatus()).isEqualTo(ImportJob.Status.FAILED);
+        assertThat(rejected.getResults()).extracting("message")
+            .containsExactly("Сервер перегружен, повторите импорт позже");
+        assertThat(importJobService.findOne(rejected.getId()).isPresent()).isFalse();
+        // the rejected import is not run
+        assertThat(tasks).hasSize(CAPACITY);
+    }
+
+    @Test
+    public void testEvictFinishedJob() throws IOException {
+        ImportJob first = submit();
+        ImportJob second = submit();
+        tasks.remove(0).run();
+        assertThat(first.getStatus()).isEqualTo(ImportJob.Status.FINISHED);
+
+        ImportJob third = submit();
+
+        assertThat(third.getStatus()).isEqualTo(ImportJob.Status.QUEUED);
+        assertThat(importJobService.findOne(first.getId()).isPresent()).isFalse();
+        assertThat(importJobService.findOne(second.getId()).isPresent()).isTrue();
+        assertThat(importJobService.findOne(third.getId()).isPresent()).isTrue();
+    }
+
+    private ImportJob submit() throws IOException {
+        MockMultipartFile file = new MockMultipartFile("file", "students.xlsx", "application/octet-stream",
+            new byte[]{1, 2, 3});
+        return importJobService.submitImportOfStudents(file, 1L);
+    }
+}
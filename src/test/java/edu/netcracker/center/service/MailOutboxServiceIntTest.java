@@ -0,0 +1,192 @@
+package edu.netcracker.center.service;
+
+import edu.netcracker.center.Application;
+import edu.netcracker.center.config.JHipsterProperties;
+import edu.netcracker.center.domain.OutboundMail;
+import edu.netcracker.center.domain.enumeration.MailStatusEnumeration;
+import edu.netcracker.center.repository.OutboundMailRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.inject.Inject;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import javax.persistence.EntityManager;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for claiming, sending and retrying the e-mails of the outbox with MailOutboxService.
+ * <p>
+ * The runs of the outbox join the transaction of the test, so the scheduled runs do not see the e-mails of the test.
+ *
+ * @see MailOutboxService
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@IntegrationTest
+@Transactional
+public class MailOutboxServiceIntTest {
+
+    private static final String RECIPIENT = "outbox@localhost";
+
+    @Inject
+    private MailOutboxService mailOutboxService;
+
+    @Inject
+    private MailService mailService;
+
+    @Inject
+    private OutboundMailRepository outboundMailRepository;
+
+    @Inject
+    private JHipsterProperties jHipsterProperties;
+
+    @Inject
+    private JavaMailSenderImpl javaMailSender;
+
+    @Inject
+    private EntityManager entityManager;
+
+    private JavaMailSenderImpl mockMailSender;
+
+    @Before
+    public void initTest() {
+        mockMailSender = mock(JavaMailSenderImpl.class);
+        when(mockMailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        ReflectionTestUtils.setField(mailOutboxService, "javaMailSender", mockMailSender);
+    }
+
+    @After
+    public void restoreMailSender() {
+        ReflectionTestUtils.setField(mailOutboxService, "javaMailSender", javaMailSender);
+    }
+
+    @Test
+    public void testDueMailIsSent() {
+        OutboundMail mail = createMail(MailStatusEnumeration.PENDING, 0, ZonedDateTime.now().minusMinutes(1));
+
+        mailOutboxService.dispatch();
+
+        OutboundMail sent = reload(mail);
+        assertThat(sent.getStatus()).isEqualTo(MailStatusEnumeration.SENT);
+        assertThat(sent.getAttempts()).isEqualTo(1);
+        assertThat(sent.getSentTime()).isNotNull();
+        verify(mockMailSender).send(Mockito.<MimeMessage>anyVararg());
+    }
+
+    @Test
+    public void testMailIsQueuedInTransaction() {
+        ZonedDateTime before = ZonedDateTime.now();
+
+        mailService.sendEmail(RECIPIENT, "subject", "content", false, true);
+
+        // the e-mail is written in the transaction of the caller, not after it
+        OutboundMail mail = outboundMailRepository.findAll().stream()
+            .filter(queued -> RECIPIENT.equals(queued.getRecipient()))
+            .findFirst().get();
+        assertThat(mail.getStatus()).isEqualTo(MailStatusEnumeration.PENDING);
+        assertThat(mail.getAttempts()).isEqualTo(0);
+        assertThat(mail.getNextAttemptTime().isBefore(before)).isFalse();
+    }
+
+    @Test
+    public void testFailedMailIsRetried() {
+        doThrow(new MailSendException("down")).when(mockMailSender).send(Mockito.<MimeMessage>anyVararg());
+        OutboundMail mail = createMail(MailStatusEnumeration.PENDING, 0, ZonedDateTime.now().minusMinutes(1));
+        ZonedDateTime before = ZonedDateTime.now();
+
+        mailOutboxService.dispatch();
+
+        OutboundMail failed = reload(mail);
+        assertThat(failed.getStatus()).isEqualTo(MailStatusEnumeration.PENDING);
+        assertThat(failed.getAttempts()).isEqualTo(1);
+        assertThat(failed.getLastError()).isEqualTo("down");
+        assertThat(failed.getSentTime()).isNull();
+        assertThat(failed.getNextAttemptTime()
+            .isBefore(before.plusSeconds(jHipsterProperties.getMail().getRetryDelay()))).isFalse();
+    }
+
+    @Test
+    public void testFailedMailIsGivenUpAfterMaxAttempts() {
+        doThrow(new MailSendException("down")).when(mockMailSender).send(Mockito.<MimeMessage>anyVararg());
+        int maxAttempts = jHipsterProperties.getMail().getMaxAttempts();
+        OutboundMail mail = createMail(MailStatusEnumeration.PENDING, maxAttempts - 1,
+            ZonedDateTime.now().minusMinutes(1));
+
+        mailOutboxService.dispatch();
+
+        OutboundMail failed = reload(mail);
+        assertThat(failed.getStatus()).isEqualTo(MailStatusEnumeration.FAILED);
+        assertThat(failed.getAttempts()).isEqualTo(maxAttempts);
+    }
+
+    @Test
+    public void testExpiredClaimIsGivenBack() {
+        // the claim ended a minute ago
+        OutboundMail mail = createMail(MailStatusEnumeration.SENDING, 0, ZonedDateTime.now().minusMinutes(1));
+
+        mailOutboxService.dispatch();
+
+        assertThat(reload(mail).getStatus()).isEqualTo(MailStatusEnumeration.SENT);
+    }
+
+    @Test
+    public void testClaimedMailIsNotSent() {
+        OutboundMail mail = createMail(MailStatusEnumeration.SENDING, 0, ZonedDateTime.now().plusMinutes(5));
+
+        mailOutboxService.dispatch();
+
+        OutboundMail claimed = reload(mail);
+        assertThat(claimed.getStatus()).isEqualTo(MailStatusEnumeration.SENDING);
+        assertThat(claimed.getAttempts()).isEqualTo(0);
+    }
+
+    @Test
+    public void testMailIsNotSentBeforeNextAttempt() {
+        OutboundMail mail = createMail(MailStatusEnumeration.PENDING, 1, ZonedDateTime.now().plusMinutes(5));
+
+        mailOutboxService.dispatch();
+
+        OutboundMail pending = reload(mail);
+        assertThat(pending.getStatus()).isEqualTo(MailStatusEnumeration.PENDING);
+        assertThat(pending.getAttempts()).isEqualTo(1);
+    }
+
+    private OutboundMail createMail(MailStatusEnumeration status, int attempts, ZonedDateTime nextAttemptTime) {
+        OutboundMail mail = new OutboundMail();
+        mail.setRecipient(RECIPIENT);
+        mail.setSubject("subject");
+        mail.setContent("content");
+        mail.setIsMultipart(false);
+        mail.setIsHtml(true);
+        mail.setStatus(status);
+        mail.setAttempts(attempts);
+        mail.setCreationTime(ZonedDateTime.now().minusHours(1));
+        mail.setNextAttemptTime(nextAttemptTime);
+        outboundMailRepository.saveAndFlush(mail);
+        // the outbox reads the e-mail as it is stored
+        entityManager.clear();
+        return mail;
+    }
+
+    private OutboundMail reload(OutboundMail mail) {
+        entityManager.flush();
+        entityManager.clear();
+        return outboundMailRepository.findOne(mail.getId());
+    }
+}
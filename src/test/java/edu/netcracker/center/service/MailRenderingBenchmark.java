@@ -0,0 +1,107 @@
+package edu.netcracker.center.service;
+
+import edu.netcracker.center.domain.User;
+import org.apache.commons.lang.CharEncoding;
+import org.apache.commons.lang.ObjectUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring4.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of rendering the creation e-mail of a student, processing the template for every recipient as
+ * {@link MailService} did before against filling the fields of the recipient into the template compiled by
+ * {@link MailRenderingService}.
+ * <p/>
+ * <p>
+ * Run with the main method from the test classpath, the scores are the average time per e-mail.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MailRenderingBenchmark {
+
+    private static final String TEMPLATE = "creationEmail";
+
+    private static final String SUBJECT_KEY = "email.activation.title";
+
+    private static final String BASE_URL = "http://localhost:8080";
+
+    private SpringTemplateEngine templateEngine;
+
+    private ReloadableResourceBundleMessageSource messageSource;
+
+    private MailRenderingService mailRenderingService;
+
+    private User user;
+
+    private int counter;
+
+    @Setup
+    public void setUp() {
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("mails/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode("HTML5");
+        templateResolver.setCharacterEncoding(CharEncoding.UTF_8);
+
+        messageSource = new ReloadableResourceBundleMessageSource();
+        messageSource.setBasename("classpath:/i18n/messages");
+        messageSource.setDefaultEncoding(CharEncoding.UTF_8);
+
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.setTemplateEngineMessageSource(messageSource);
+
+        mailRenderingService = new MailRenderingService(templateEngine, messageSource);
+
+        user = new User();
+        user.setLogin("student");
+        user.setFirstName("Иван");
+        user.setLastName("Петров");
+        user.setEmail("student@localhost");
+        user.setLangKey("ru");
+    }
+
+    /**
+     * The rendering of MailService.sendCreationEmail before the compiled templates.
+     */
+    @Benchmark
+    public String processPerRecipient() {
+        user.setResetKey(String.valueOf(counter++));
+        Locale locale = Locale.forLanguageTag(user.getLangKey());
+        Context context = new Context(locale);
+        context.setVariable("user", user);
+        context.setVariable("baseUrl", BASE_URL);
+        context.setVariable("name", user.getLastName() + " " + ObjectUtils.toString(user.getFirstName(), ""));
+        String content = templateEngine.process(TEMPLATE, context);
+        String subject = messageSource.getMessage(SUBJECT_KEY, null, locale);
+        return subject + content;
+    }
+
+    @Benchmark
+    public String renderCompiled() {
+        user.setResetKey(String.valueOf(counter++));
+        MailRenderingService.RenderedMail mail = mailRenderingService.render(TEMPLATE, SUBJECT_KEY, user, BASE_URL);
+        return mail.getSubject() + mail.getContent();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(MailRenderingBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
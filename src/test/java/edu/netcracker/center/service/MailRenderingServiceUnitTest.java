@@ -0,0 +1,123 @@
+package edu.netcracker.center.service;
+
+import edu.netcracker.center.domain.User;
+import org.apache.commons.lang.CharEncoding;
+import org.apache.commons.lang.ObjectUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring4.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the MailRenderingService.
+ *
+ * @see MailRenderingService
+ */
+public class MailRenderingServiceUnitTest {
+
+    private static final String BASE_URL = "http://localhost:8080";
+
+    private static final String[][] MAILS = {
+        {"activationEmail", "email.activation.title"},
+        {"creationEmail", "email.activation.title"},
+        {"passwordResetEmail", "email.reset.title"}
+    };
+
+    private SpringTemplateEngine templateEngine;
+
+    private ReloadableResourceBundleMessageSource messageSource;
+
+    private MailRenderingService mailRenderingService;
+
+    @Before
+    public void setUp() {
+        ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("mails/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode("HTML5");
+        templateResolver.setCharacterEncoding(CharEncoding.UTF_8);
+
+        messageSource = new ReloadableResourceBundleMessageSource();
+        messageSource.setBasename("classpath:/i18n/messages");
+        messageSource.setDefaultEncoding(CharEncoding.UTF_8);
+
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.setTemplateEngineMessageSource(messageSource);
+
+        mailRenderingService = new MailRenderingService(templateEngine, messageSource);
+    }
+
+    @Test
+    public void testRenderEscapesFields() {
+        User user = createUser("ru", "student");
+        user.setFirstName("<script>alert('Иван')</script>");
+        user.setLastName("Петров & Сидоров");
+
+        String content = mailRenderingService.render("creationEmail", "email.activation.title", user, BASE_URL)
+            .getContent();
+
+        assertThat(content).doesNotContain("<script>");
+        assertThat(content).contains("Петров &amp; Сидоров &lt;script&gt;alert(&#39;Иван&#39;)&lt;/script&gt;");
+        assertThat(content).doesNotContain("@@");
+    }
+
+    @Test
+    public void testRenderMatchesProcessingPerRecipient() {
+        for (String lang : new String[]{"ru", "en"}) {
+            for (String[] mail : MAILS) {
+                // the first recipient compiles the template, the second one reuses it
+                for (String login : new String[]{"student1", "student2"}) {
+                    User user = createUser(lang, login);
+
+                    MailRenderingService.RenderedMail rendered =
+                        mailRenderingService.render(mail[0], mail[1], user, BASE_URL);
+
+                    Locale locale = Locale.forLanguageTag(lang);
+                    assertThat(rendered.getSubject()).isEqualTo(messageSource.getMessage(mail[1], null, locale));
+                    assertThat(rendered.getContent()).isEqualTo(process(mail[0], user, locale));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRenderWithoutFirstName() {
+        User user = createUser("ru", "student");
+        user.setFirstName(null);
+
+        String content = mailRenderingService.render("creationEmail", "email.activation.title", user, BASE_URL)
+            .getContent();
+
+        assertThat(content).isEqualTo(process("creationEmail", user, Locale.forLanguageTag("ru")));
+    }
+
+    /**
+     * The rendering of MailService before the compiled templates.
+     */
+    private String process(String template, User user, Locale locale) {
+        Context context = new Context(locale);
+        context.setVariable("user", user);
+        context.setVariable("baseUrl", BASE_URL);
+        context.setVariable("name", user.getLastName() + " " + ObjectUtils.toString(user.getFirstName(), ""));
+        return templateEngine.process(template, context);
+    }
+
+    private User createUser(String langKey, String login) {
+        User user = new User();
+        user.setLogin(login);
+        user.setFirstName("Иван");
+        user.setLastName("Петров");
+        user.setEmail(login + "@localhost");
+        user.setActivationKey("activation-" + login);
+        user.setResetKey("reset-" + login);
+        user.setLangKey(langKey);
+        return user;
+    }
+}
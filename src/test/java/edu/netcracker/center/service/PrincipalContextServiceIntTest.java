@@ -0,0 +1,252 @@
+package edu.netcracker.center.service;
+
+import edu.netcracker.center.Application;
+import edu.netcracker.center.domain.Curator;
+import edu.netcracker.center.domain.Student;
+import edu.netcracker.center.domain.User;
+import edu.netcracker.center.domain.enumeration.UniversityEnumeration;
+import edu.netcracker.center.repository.CuratorRepository;
+import edu.netcracker.center.repository.LearningTypeRepository;
+import edu.netcracker.center.repository.StudentRepository;
+import edu.netcracker.center.repository.UserRepository;
+import edu.netcracker.center.service.PrincipalContextService.PrincipalContext;
+import org.apache.commons.lang.RandomStringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.AdditionalAnswers;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test class for the caching and the eviction of the contexts of PrincipalContextService.
+ * <p>
+ * Contexts are evicted after the commit, so the changes are committed on their own and the created rows are deleted
+ * after the test, like in {@link StudentServiceIntTest}.
+ *
+ * @see PrincipalContextService
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@IntegrationTest
+public class PrincipalContextServiceIntTest {
+
+    @Inject
+    private PrincipalContextService principalContextService;
+
+    @Inject
+    private UserService userService;
+
+    @Inject
+    private StudentService studentService;
+
+    @Inject
+    private CuratorService curatorService;
+
+    @Inject
+    private UserRepository userRepository;
+
+    @Inject
+    private StudentRepository studentRepository;
+
+    @Inject
+    private CuratorRepository curatorRepository;
+
+    @Inject
+    private LearningTypeRepository learningTypeRepository;
+
+    @Inject
+    private EntityManager entityManager;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private User user;
+
+    private List<Long> studentIds = new ArrayList<>();
+
+    private List<Long> curatorIds = new ArrayList<>();
+
+    @Before
+    public void initTest() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        String login = "context" + RandomStringUtils.randomNumeric(8);
+        user = inTransaction(() -> {
+            User created = new User();
+            created.setLogin(login);
+            created.setPassword(RandomStringUtils.randomAlphanumeric(60));
+            created.setEmail(login + "@localhost");
+            created.setActivated(true);
+            created.setLangKey("ru");
+            return userRepository.save(created);
+        });
+        SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        // the principal is the user of Spring Security, as after the login
+        org.springframework.security.core.userdetails.User principal =
+            new org.springframework.security.core.userdetails.User(login, login, Collections.emptyList());
+        securityContext.setAuthentication(new UsernamePasswordAuthenticationToken(principal, login));
+        SecurityContextHolder.setContext(securityContext);
+    }
+
+    @After
+    public void deleteCreated() {
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(principalContextService), "userRepository",
+            userRepository);
+        SecurityContextHolder.clearContext();
+        inTransaction(() -> {
+            curatorIds.forEach(curatorRepository::delete);
+            studentIds.forEach(studentRepository::delete);
+            return null;
+        });
+        inTransaction(() -> {
+            userRepository.delete(user.getId());
+            studentIds.forEach(id -> entityManager.createNativeQuery("delete from student_aud where id = :id")
+                .setParameter("id", id)
+                .executeUpdate());
+            return null;
+        });
+        // the context of the deleted user is not left for the next test
+        principalContextService.evict(user.getLogin());
+        studentIds.clear();
+        curatorIds.clear();
+    }
+
+    @Test
+    public void testGetCurrentIsCached() {
+        PrincipalContext context = principalContextService.getCurrent().get();
+
+        assertThat(context.getUserId()).isEqualTo(user.getId());
+        assertThat(context.getCuratorId()).isNull();
+        assertThat(context.getStudentId()).isNull();
+        assertThat(principalContextService.getCurrent().get()).isSameAs(context);
+    }
+
+    @Test
+    public void testGetCurrentWithoutUser() {
+        SecurityContextHolder.clearContext();
+
+        assertThat(principalContextService.getCurrent().isPresent()).isFalse();
+    }
+
+    @Test
+    public void testEvictAfterUserChange() {
+        PrincipalContext context = principalContextService.getCurrent().get();
+
+        userService.updateUserInformation("Иван", "Петров", user.getEmail(), "ru");
+
+        assertThat(principalContextService.getCurrent().get()).isNotSameAs(context);
+    }
+
+    @Test
+    public void testEvictAfterStudentChange() {
+        Long studentId = createStudent();
+        assertThat(principalContextService.getCurrent().get().getStudentId()).isNull();
+
+        inTransaction(() -> {
+            Student student = studentRepository.findOne(studentId);
+            student.setUser(userRepository.findOne(user.getId()));
+            studentService.save(student);
+            // the context is evicted only once the change is committed
+            assertThat(principalContextService.getCurrent().get().getStudentId()).isNull();
+            return null;
+        });
+
+        assertThat(principalContextService.getCurrent().get().getStudentId()).isEqualTo(studentId);
+    }
+
+    @Test
+    public void testEvictAfterCuratorChange() {
+        assertThat(principalContextService.getCurrent().get().getCuratorId()).isNull();
+
+        Curator curator = new Curator();
+        curator.setFirstName("Иван");
+        curator.setLastName("Петров");
+        curator.setEmail(user.getEmail());
+        curator.setIsActive(true);
+        curator.setUser(user);
+        Long curatorId = inTransaction(() -> curatorService.save(curator).getId());
+        curatorIds.add(curatorId);
+
+        assertThat(principalContextService.getCurrent().get().getCuratorId()).isEqualTo(curatorId);
+    }
+
+    @Test
+    public void testRolledBackChangeDoesNotEvict() {
+        PrincipalContext context = principalContextService.getCurrent().get();
+
+        transactionTemplate.execute(status -> {
+            principalContextService.evict(user.getLogin());
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertThat(principalContextService.getCurrent().get()).isSameAs(context);
+    }
+
+    @Test
+    public void testContextResolvedAcrossEvictionIsNotCached() {
+        // another user is evicted while the context of the current user is resolved
+        UserRepository evictingRepository = mock(UserRepository.class, AdditionalAnswers.delegatesTo(userRepository));
+        doAnswer(invocation -> {
+            CompletableFuture.runAsync(() -> principalContextService.evict("other")).join();
+            return userRepository.findOneByLogin(user.getLogin());
+        }).when(evictingRepository).findOneByLogin(user.getLogin());
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(principalContextService), "userRepository",
+            evictingRepository);
+
+        PrincipalContext resolved = principalContextService.getCurrent().get();
+
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(principalContextService), "userRepository",
+            userRepository);
+        assertThat(resolved.getUserId()).isEqualTo(user.getId());
+        PrincipalContext next = principalContextService.getCurrent().get();
+        assertThat(next).isNotSameAs(resolved);
+        // a context resolved without an eviction is cached again
+        assertThat(principalContextService.getCurrent().get()).isSameAs(next);
+    }
+
+    private Long createStudent() {
+        Student student = new Student();
+        student.setLastName("Петров");
+        student.setFirstName("Иван");
+        student.setEmail(user.getEmail());
+        student.setUniversity(UniversityEnumeration.СГТУ);
+        student.setIsActive(true);
+        student.setGotJob(false);
+        Long id = inTransaction(() -> {
+            student.setLearningType(learningTypeRepository.findOne(1L));
+            return studentRepository.save(student).getId();
+        });
+        studentIds.add(id);
+        return id;
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+}
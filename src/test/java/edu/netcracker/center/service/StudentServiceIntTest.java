@@ -0,0 +1,352 @@
+package edu.netcracker.center.service;
+
+import edu.netcracker.center.Application;
+import edu.netcracker.center.domain.*;
+import edu.netcracker.center.domain.enumeration.TypeOfResult;
+import edu.netcracker.center.domain.enumeration.UniversityEnumeration;
+import edu.netcracker.center.domain.util.OperationResult;
+import edu.netcracker.center.domain.util.StudentsSetVersionListener;
+import edu.netcracker.center.repository.*;
+import edu.netcracker.center.web.rest.dto.ArchiveResultDTO;
+import edu.netcracker.center.web.rest.util.StudentIntegrationResource;
+import org.apache.commons.lang.RandomStringUtils;
+import org.hibernate.envers.AuditReaderFactory;
+import org.hibernate.envers.RevisionType;
+import org.hibernate.envers.query.AuditEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for archiving, unzipping and registering the students of a set with StudentService, and for the export
+ * of the set after archiving.
+ * <p>
+ * A transaction has a single audit revision, so archiving and unzipping are committed on their own and the created
+ * rows are deleted after the test, like in {@link HistoryServiceIntTest}.
+ *
+ * @see StudentService
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@IntegrationTest
+public class StudentServiceIntTest {
+
+    private static final String DESCRIPTION = "Выпущен";
+
+    @Inject
+    private StudentService studentService;
+
+    @Inject
+    private StudentsSetService studentsSetService;
+
+    @Inject
+    private ExportCacheService exportCacheService;
+
+    @Inject
+    private StudentRepository studentRepository;
+
+    @Inject
+    private StudentsSetRepository studentsSetRepository;
+
+    @Inject
+    private LearningResultRepository learningResultRepository;
+
+    @Inject
+    private LearningTypeRepository learningTypeRepository;
+
+    @Inject
+    private UserRepository userRepository;
+
+    @Inject
+    private EntityManager entityManager;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private StudentsSet studentsSet;
+
+    private StudentsSet otherSet;
+
+    private List<Long> archivedIds;
+
+    private Long otherId;
+
+    private Long oldResultId;
+
+    private List<Long> studentIds = new ArrayList<>();
+
+    private List<Long> userIds = new ArrayList<>();
+
+    @Before
+    public void initTest() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        studentsSet = createStudentsSet("Archived");
+        otherSet = createStudentsSet("Other");
+        // one student has no user, one already has a learning result
+        Long withUser = createStudent("archived1", studentsSet, true);
+        Long withResult = createStudent("archived2", studentsSet, true);
+        Long withoutUser = createStudent("archived3", studentsSet, false);
+        archivedIds = Arrays.asList(withUser, withResult, withoutUser);
+        otherId = createStudent("other1", otherSet, true);
+        oldResultId = inTransaction(() -> {
+            LearningResult learningResult = new LearningResult();
+            learningResult.setType(TypeOfResult.Dismissed);
+            learningResult.setDescription("Отчислен");
+            learningResult.setCreationTime(ZonedDateTime.now().minusDays(1));
+            learningResultRepository.save(learningResult);
+            studentRepository.findOne(withResult).setLearningResult(learningResult);
+            return learningResult.getId();
+        });
+    }
+
+    @After
+    public void deleteCreated() {
+        inTransaction(() -> {
+            studentIds.stream()
+                .filter(studentRepository::exists)
+                .forEach(studentRepository::delete);
+            return null;
+        });
+        inTransaction(() -> {
+            userIds.forEach(userRepository::delete);
+            studentsSetRepository.delete(studentsSet.getId());
+            studentsSetRepository.delete(otherSet.getId());
+            studentIds.forEach(id -> entityManager.createNativeQuery("delete from student_aud where id = :id")
+                .setParameter("id", id)
+                .executeUpdate());
+            return null;
+        });
+        studentIds.clear();
+        userIds.clear();
+    }
+
+    @Test
+    public void testArchiveAllAndUnzipAll() {
+        ArchiveResultDTO archived = studentService.archiveAll(studentsSet.getId(), null, TypeOfResult.Released,
+            DESCRIPTION);
+
+        assertThat(archived.getStudents()).isEqualTo(3);
+        assertThat(archived.getUsers()).isEqualTo(2);
+        assertThat(archived.getLearningResults()).isEqualTo(3);
+        List<Long> resultIds = inTransaction(() -> {
+            List<Long> ids = new ArrayList<>();
+            for (Long id : archivedIds) {
+                Student student = studentRepository.findOne(id);
+                assertThat(student.getIsActive()).isFalse();
+                if (student.getUser() != null) {
+                    assertThat(student.getUser().getActivated()).isFalse();
+                }
+                LearningResult learningResult = student.getLearningResult();
+                assertThat(learningResult).isNotNull();
+                assertThat(learningResult.getType()).isEqualTo(TypeOfResult.Released);
+                // the tag linking a new result to its student is replaced
+                assertThat(learningResult.getDescription()).isEqualTo(DESCRIPTION);
+                ids.add(learningResult.getId());
+            }
+            return ids;
+        });
+        // every student has its own result, the existing one is kept
+        assertThat(new HashSet<>(resultIds)).hasSize(3);
+        assertThat(resultIds).contains(oldResultId);
+        assertOtherStudentNotChanged();
+        Integer archiveRevision = assertLastRevision(false);
+
+        ArchiveResultDTO unzipped = studentService.unzipAll(studentsSet.getId(), null);
+
+        assertThat(unzipped.getStudents()).isEqualTo(3);
+        assertThat(unzipped.getUsers()).isEqualTo(2);
+        assertThat(unzipped.getLearningResults()).isEqualTo(3);
+        inTransaction(() -> {
+            for (Long id : archivedIds) {
+                Student student = studentRepository.findOne(id);
+                assertThat(student.getIsActive()).isTrue();
+                assertThat(student.getLearningResult()).isNull();
+                if (student.getUser() != null) {
+                    assertThat(student.getUser().getActivated()).isTrue();
+                }
+            }
+            resultIds.forEach(id -> assertThat(learningResultRepository.exists(id)).isFalse());
+            return null;
+        });
+        assertOtherStudentNotChanged();
+        Integer unzipRevision = assertLastRevision(true);
+        assertThat(unzipRevision).isNotEqualTo(archiveRevision);
+    }
+
+    @Test
+    public void testExportAfterArchiveAllAndUnzipAll() throws Exception {
+        StudentIntegrationResource studentIntegrationResource = new StudentIntegrationResource();
+        ReflectionTestUtils.setField(studentIntegrationResource, "studentService", studentService);
+        ReflectionTestUtils.setField(studentIntegrationResource, "studentsSetService", studentsSetService);
+        ReflectionTestUtils.setField(studentIntegrationResource, "exportCacheService", exportCacheService);
+        MockMvc restStudentIntegrationMockMvc = MockMvcBuilders.standaloneSetup(studentIntegrationResource).build();
+        String otherVersion = StudentsSetVersionListener.getVersion(otherSet.getId());
+        String exported = export(restStudentIntegrationMockMvc, null);
+        // the cached export is not sent again while the set is not changed
+        restStudentIntegrationMockMvc.perform(get("/api/export/students/{id}", studentsSet.getId())
+            .header("If-None-Match", exported))
+            .andExpect(status().isNotModified());
+
+        studentService.archiveAll(studentsSet.getId(), null, TypeOfResult.Released, DESCRIPTION);
+
+        String archived = export(restStudentIntegrationMockMvc, exported);
+        assertThat(archived).isNotEqualTo(exported);
+
+        studentService.unzipAll(studentsSet.getId(), null);
+
+        String unzipped = export(restStudentIntegrationMockMvc, archived);
+        assertThat(unzipped).isNotIn(exported, archived);
+        // the export of the other set is kept
+        assertThat(StudentsSetVersionListener.getVersion(otherSet.getId())).isEqualTo(otherVersion);
+    }
+
+    @Test
+    public void testRegisterStudents() {
+        Long withoutUser = archivedIds.get(2);
+        // the students are posted as they were read, with the edits of the client
+        Student posted = inTransaction(() -> studentRepository.findOne(withoutUser));
+        posted.setFirstName("Posted");
+        posted.setEmail("posted@localhost");
+        Student taken = inTransaction(() -> studentRepository.findOne(otherId));
+        taken.setEmail("archived1@localhost");
+        Student missing = new Student();
+        missing.setId(Long.MAX_VALUE);
+        missing.setEmail("missing@localhost");
+
+        // nothing is committed, so nothing is left to delete
+        transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            Collection<OperationResult> results = studentService.registerStudents(
+                Arrays.asList(posted, taken, missing), "http://localhost:8080");
+
+            assertThat(results).extracting("message").containsExactly("Пользователь создан",
+                "Пользователь с таким e-mail уже зарегистрирован", "Студент не найден");
+            Student registered = studentRepository.findOne(withoutUser);
+            assertThat(registered.getFirstName()).isEqualTo("Posted");
+            assertThat(registered.getEmail()).isEqualTo("posted@localhost");
+            assertThat(registered.getUser().getLogin()).isEqualTo("posted@localhost");
+            assertThat(registered.getUser().getFirstName()).isEqualTo("Posted");
+            assertThat(studentRepository.findOne(otherId).getEmail()).isEqualTo("other1@localhost");
+            return null;
+        });
+    }
+
+    /**
+     * @return the ETag of the export of the set, which is sent whole when it does not match the previous one
+     */
+    private String export(MockMvc restStudentIntegrationMockMvc, String previousETag) throws Exception {
+        MockHttpServletRequestBuilder request = get("/api/export/students/{id}", studentsSet.getId());
+        if (previousETag != null) {
+            request.header("If-None-Match", previousETag);
+        }
+        String eTag = restStudentIntegrationMockMvc.perform(request)
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader("ETag");
+        assertThat(eTag).isNotNull();
+        return eTag;
+    }
+
+    private void assertOtherStudentNotChanged() {
+        inTransaction(() -> {
+            Student other = studentRepository.findOne(otherId);
+            assertThat(other.getIsActive()).isTrue();
+            assertThat(other.getLearningResult()).isNull();
+            assertThat(other.getUser().getActivated()).isTrue();
+            // only the creation is audited
+            assertThat(getRevisions(otherId)).hasSize(1);
+            return null;
+        });
+    }
+
+    /**
+     * Asserts that the last audit rows of the archived students are written in one revision with the state.
+     *
+     * @return the revision
+     */
+    private Integer assertLastRevision(boolean active) {
+        Set<Integer> revisions = inTransaction(() -> archivedIds.stream()
+            .map(id -> {
+                List<Object[]> rows = getRevisions(id);
+                Object[] last = rows.get(rows.size() - 1);
+                assertThat(((Student) last[0]).getIsActive()).isEqualTo(active);
+                assertThat(last[2]).isEqualTo(RevisionType.MOD);
+                return ((Revision) last[1]).getId();
+            })
+            .collect(Collectors.toSet()));
+        assertThat(revisions).hasSize(1);
+        return revisions.iterator().next();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> getRevisions(Long id) {
+        return AuditReaderFactory.get(entityManager).createQuery()
+            .forRevisionsOfEntity(Student.class, false, true)
+            .add(AuditEntity.id().eq(id))
+            .addOrder(AuditEntity.revisionNumber().asc())
+            .getResultList();
+    }
+
+    private StudentsSet createStudentsSet(String name) {
+        StudentsSet set = new StudentsSet();
+        set.setName(name);
+        set.setIsActive(true);
+        return inTransaction(() -> studentsSetRepository.save(set));
+    }
+
+    private Long createStudent(String name, StudentsSet set, boolean withUser) {
+        Student student = new Student();
+        student.setLastName(name);
+        student.setFirstName("AAAAA");
+        student.setEmail(name + "@localhost");
+        student.setUniversity(UniversityEnumeration.СГТУ);
+        student.setIsActive(true);
+        student.setGotJob(false);
+        student.setStudentsSet(set);
+        inTransaction(() -> {
+            if (withUser) {
+                User user = new User();
+                user.setLogin(name);
+                user.setPassword(RandomStringUtils.randomAlphanumeric(60));
+                user.setEmail(name + "@localhost");
+                user.setActivated(true);
+                user.setLangKey("ru");
+                userRepository.save(user);
+                userIds.add(user.getId());
+                student.setUser(user);
+            }
+            student.setLearningType(learningTypeRepository.findOne(1L));
+            return studentRepository.save(student);
+        });
+        studentIds.add(student.getId());
+        return student.getId();
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+}
@@ -0,0 +1,264 @@
+package edu.netcracker.center.service;
+
+import edu.netcracker.center.Application;
+import edu.netcracker.center.domain.Student;
+import edu.netcracker.center.domain.StudentSnapshot;
+import edu.netcracker.center.domain.enumeration.UniversityEnumeration;
+import edu.netcracker.center.repository.LearningTypeRepository;
+import edu.netcracker.center.repository.StudentRepository;
+import edu.netcracker.center.repository.StudentSnapshotRepository;
+import org.apache.commons.lang.ObjectUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the StudentSnapshotService.
+ * <p>
+ * Audit rows are written on commit, so every change is committed in its own transaction, and the students, their
+ * audit rows and the snapshots are deleted after the test, like in {@link HistoryServiceIntTest}.
+ *
+ * @see StudentSnapshotService
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@IntegrationTest
+public class StudentSnapshotServiceIntTest {
+
+    // revision timestamps are in milliseconds, dates are taken apart from them
+    private static final long PAUSE_MILLIS = 20;
+
+    @Inject
+    private StudentSnapshotService studentSnapshotService;
+
+    @Inject
+    private RevisionIndexService revisionIndexService;
+
+    @Inject
+    private StudentSnapshotRepository studentSnapshotRepository;
+
+    @Inject
+    private StudentRepository studentRepository;
+
+    @Inject
+    private LearningTypeRepository learningTypeRepository;
+
+    @Inject
+    private EntityManager entityManager;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Set<Long> existingSnapshotIds;
+
+    private List<Long> createdIds = new ArrayList<>();
+
+    @Before
+    public void initTest() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        existingSnapshotIds = getSnapshotIds();
+    }
+
+    @After
+    public void deleteCreated() {
+        Set<Long> snapshotIds = getSnapshotIds();
+        snapshotIds.removeAll(existingSnapshotIds);
+        snapshotIds.forEach(this::deleteSnapshot);
+        inTransaction(() -> {
+            createdIds.stream()
+                .filter(studentRepository::exists)
+                .forEach(studentRepository::delete);
+            return null;
+        });
+        inTransaction(() -> {
+            createdIds.forEach(id -> entityManager.createNativeQuery("delete from student_aud where id = :id")
+                .setParameter("id", id)
+                .executeUpdate());
+            return null;
+        });
+        createdIds.clear();
+    }
+
+    @Test
+    public void testStateWithSnapshot() throws Exception {
+        Long modifiedId = createStudent("Modified");
+        Long deletedId = createStudent("Deleted");
+        Long unchangedId = createStudent("Unchanged");
+        int snapshotRevision = getLatestRevision();
+        StudentSnapshot snapshot = inTransaction(() -> studentSnapshotService.create(snapshotRevision));
+        assertThat(snapshot.getRevision()).isEqualTo(snapshotRevision);
+        // a snapshot is taken once per revision
+        assertThat(inTransaction(() -> studentSnapshotService.create(snapshotRevision)).getId())
+            .isEqualTo(snapshot.getId());
+
+        inTransaction(() -> {
+            studentRepository.findOne(modifiedId).setLastName("Changed");
+            studentRepository.delete(deletedId);
+            return null;
+        });
+        Long addedId = createStudent("Added");
+        int revision = getLatestRevision();
+
+        Map<Long, String> atSnapshot = getState(snapshotRevision);
+        Map<Long, String> latest = getState(revision);
+        assertThat(getStateBySlices(revision, 2)).isEqualTo(latest);
+        assertThat(getStateBySlices(snapshotRevision, 2)).isEqualTo(atSnapshot);
+
+        assertThat(atSnapshot.keySet()).containsOnly(modifiedId, deletedId, unchangedId);
+        assertThat(atSnapshot.get(modifiedId)).startsWith("Modified,");
+        assertThat(latest.keySet()).containsOnly(modifiedId, unchangedId, addedId);
+        assertThat(latest.get(modifiedId)).startsWith("Changed,");
+        assertThat(latest.get(unchangedId)).isEqualTo(atSnapshot.get(unchangedId));
+
+        // the same state is replayed from the audit rows without the snapshot
+        deleteSnapshot(snapshot.getId());
+        assertThat(getState(snapshotRevision)).isEqualTo(atSnapshot);
+        assertThat(getState(revision)).isEqualTo(latest);
+        assertThat(getStateBySlices(revision, 2)).isEqualTo(latest);
+    }
+
+    @Test
+    public void testPrune() throws Exception {
+        createStudent("First");
+        StudentSnapshot first = createSnapshot(ZonedDateTime.now().minusDays(60));
+        inTransaction(() -> {
+            studentRepository.findOne(createdIds.get(0)).setLastName("Second");
+            return null;
+        });
+        // in the same month as the first one
+        StudentSnapshot second = createSnapshot(first.getCreationTime());
+        inTransaction(() -> {
+            studentRepository.findOne(createdIds.get(0)).setLastName("Daily");
+            return null;
+        });
+        StudentSnapshot daily = createSnapshot(ZonedDateTime.now().minusDays(1));
+
+        inTransaction(() -> {
+            studentSnapshotService.createAndPrune();
+            return null;
+        });
+
+        Set<Long> snapshotIds = getSnapshotIds();
+        // the first snapshot of the month and the daily one are kept
+        assertThat(snapshotIds).contains(first.getId(), daily.getId());
+        assertThat(snapshotIds).doesNotContain(second.getId());
+        assertThat(countRows(second.getId())).isEqualTo(0);
+        assertThat(countRows(first.getId())).isGreaterThan(0);
+    }
+
+    /**
+     * @return the audited state of the created students as of the revision by the ids
+     */
+    private Map<Long, String> getState(int revision) {
+        Map<Long, String> state = new LinkedHashMap<>();
+        inTransaction(() -> {
+            studentSnapshotService.forEachStudent(revision, student -> state.put(student.getId(), describe(student)));
+            return null;
+        });
+        // the students of the other tests are left out
+        state.keySet().retainAll(createdIds);
+        return state;
+    }
+
+    private Map<Long, String> getStateBySlices(int revision, int size) {
+        Map<Long, String> state = new LinkedHashMap<>();
+        Long lastId = null;
+        Slice<Student> slice;
+        do {
+            Long after = lastId;
+            slice = inTransaction(() -> studentSnapshotService.getStudents(revision, after, size));
+            for (Student student : slice.getContent()) {
+                state.put(student.getId(), describe(student));
+                lastId = student.getId();
+            }
+        } while (slice.hasNext());
+        state.keySet().retainAll(createdIds);
+        return state;
+    }
+
+    private String describe(Student student) {
+        return Arrays.asList(student.getLastName(), student.getFirstName(), student.getMiddleName(),
+            student.getEmail(), student.getPhone(), student.getCourse(), student.getSpecialty(),
+            student.getUniversity(), student.getFaculty(), student.getIsActive(), student.getGotJob(),
+            student.getComment()).stream()
+            .map(ObjectUtils::toString)
+            .collect(Collectors.joining(","));
+    }
+
+    private StudentSnapshot createSnapshot(ZonedDateTime creationTime) throws InterruptedException {
+        int revision = getLatestRevision();
+        return inTransaction(() -> {
+            StudentSnapshot snapshot = studentSnapshotService.create(revision);
+            snapshot.setCreationTime(creationTime);
+            return studentSnapshotRepository.save(snapshot);
+        });
+    }
+
+    private int getLatestRevision() throws InterruptedException {
+        Thread.sleep(PAUSE_MILLIS);
+        return revisionIndexService.getRevisionNumberForDate(new Date()).get();
+    }
+
+    private Set<Long> getSnapshotIds() {
+        return inTransaction(() -> studentSnapshotRepository.findAll().stream()
+            .map(StudentSnapshot::getId)
+            .collect(Collectors.toSet()));
+    }
+
+    private long countRows(Long snapshotId) {
+        return inTransaction(() -> ((Number) entityManager
+            .createNativeQuery("select count(*) from student_snapshot_row where snapshot_id = :id")
+            .setParameter("id", snapshotId)
+            .getSingleResult()).longValue());
+    }
+
+    private void deleteSnapshot(Long snapshotId) {
+        inTransaction(() -> {
+            entityManager.createNativeQuery("delete from student_snapshot_row where snapshot_id = :id")
+                .setParameter("id", snapshotId)
+                .executeUpdate();
+            studentSnapshotRepository.delete(snapshotId);
+            return null;
+        });
+    }
+
+    private Long createStudent(String lastName) {
+        Student student = new Student();
+        student.setLastName(lastName);
+        student.setFirstName("AAAAA");
+        student.setEmail(lastName.toLowerCase() + "@localhost");
+        student.setUniversity(UniversityEnumeration.СГТУ);
+        student.setIsActive(true);
+        student.setGotJob(false);
+        inTransaction(() -> {
+            student.setLearningType(learningTypeRepository.findOne(1L));
+            return studentRepository.save(student);
+        });
+        createdIds.add(student.getId());
+        return student.getId();
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+}
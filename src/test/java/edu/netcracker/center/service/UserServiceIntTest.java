@@ -17,6 +17,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 
 import javax.inject.Inject;
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.List;
 
@@ -136,6 +137,17 @@ public class UserServiceIntTest {
         assertThat(users).isEmpty();
     }
 
+    @Test
+    public void testFindCollidingUsersByLoginOrEmail() {
+        List<String> logins = Arrays.asList("admin", "john.doe@localhost");
+        List<String> emails = Arrays.asList("user@localhost", "john.doe@localhost");
+
+        List<User> users = userRepository.findAllByLoginInOrEmailIn(logins, emails);
+
+        // admin collides by login, user by e-mail
+        assertThat(users).extracting("login").containsOnly("admin", "user");
+    }
+
     private void generateUserToken(User user, String tokenSeries, LocalDate localDate) {
         PersistentToken token = new PersistentToken();
         token.setSeries(tokenSeries);
@@ -8,7 +8,9 @@ import edu.netcracker.center.service.CuratorService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
@@ -72,6 +74,8 @@ public class CuratorResourceIntTest {
 
     private MockMvc restCuratorMockMvc;
 
+    private MockMvc unpagedCuratorMockMvc;
+
     private Curator curator;
 
     @PostConstruct
@@ -82,6 +86,12 @@ public class CuratorResourceIntTest {
         this.restCuratorMockMvc = MockMvcBuilders.standaloneSetup(curatorResource)
             .setCustomArgumentResolvers(pageableArgumentResolver, querydslPredicateArgumentResolver)
             .setMessageConverters(jacksonMessageConverter).build();
+        // no pageable is resolved without page and size, as in WebMvcConfiguration
+        PageableHandlerMethodArgumentResolver unpagedArgumentResolver = new PageableHandlerMethodArgumentResolver();
+        unpagedArgumentResolver.setFallbackPageable(null);
+        this.unpagedCuratorMockMvc = MockMvcBuilders.standaloneSetup(curatorResource)
+            .setCustomArgumentResolvers(unpagedArgumentResolver, querydslPredicateArgumentResolver)
+            .setMessageConverters(jacksonMessageConverter).build();
     }
 
     @Before
@@ -189,6 +199,39 @@ public class CuratorResourceIntTest {
                 .andExpect(jsonPath("$.[*].isActive").value(hasItem(DEFAULT_IS_ACTIVE.booleanValue())));
     }
 
+    @Test
+    @Transactional
+    public void getAllCuratorsWithoutPaging() throws Exception {
+        // Initialize the database
+        curatorRepository.saveAndFlush(curator);
+
+        // every curator is returned as one page
+        unpagedCuratorMockMvc.perform(get("/api/curators"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize((int) curatorRepository.count())))
+                .andExpect(jsonPath("$.[*].id").value(hasItem(curator.getId().intValue())))
+                .andExpect(header().string("X-Total-Count", String.valueOf(curatorRepository.count())));
+    }
+
+    @Test
+    @Transactional
+    public void getAllCuratorsByCursorWithoutSize() throws Exception {
+        // Initialize the database
+        curatorRepository.saveAndFlush(curator);
+
+        // the first page of the default size sorted by id
+        unpagedCuratorMockMvc.perform(get("/api/curators?cursor="))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Link", containsString(
+                    "</api/curators?cursor=&size=20&sort=id,asc>; rel=\"first\"")));
+
+        unpagedCuratorMockMvc.perform(get("/api/curators?count=false"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Link", containsString(
+                    "</api/curators?page=0&size=20&count=false>; rel=\"first\"")));
+    }
+
     @Test
     @Transactional
     public void getCurator() throws Exception {
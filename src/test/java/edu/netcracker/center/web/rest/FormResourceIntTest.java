@@ -25,6 +25,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -59,6 +60,9 @@ public class FormResourceIntTest {
     private static final Boolean DEFAULT_IS_ACTIVE = false;
     private static final Boolean UPDATED_IS_ACTIVE = true;
 
+    private static final String STORED_FILE_HASH = "AAAAA";
+    private static final String FORGED_FILE_HASH = "BBBBB";
+
     @Inject
     private FormRepository formRepository;
 
@@ -220,6 +224,26 @@ public class FormResourceIntTest {
         assertThat(testForm.getIsActive()).isEqualTo(UPDATED_IS_ACTIVE);
     }
 
+    @Test
+    @Transactional
+    public void updateFormKeepsFileHash() throws Exception {
+        // Initialize the database
+        form.setFileHash(STORED_FILE_HASH);
+        formRepository.saveAndFlush(form);
+
+        // the hash is the key of the reference count of the file, it is not changed by the client
+        String content = new String(TestUtil.convertObjectToJsonBytes(form), StandardCharsets.UTF_8)
+            .replaceFirst("\\{", "{\"fileHash\":\"" + FORGED_FILE_HASH + "\",");
+        restFormMockMvc.perform(put("/api/forms")
+                .contentType(TestUtil.APPLICATION_JSON_UTF8)
+                .content(content))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fileHash").doesNotExist());
+
+        formRepository.flush();
+        assertThat(formRepository.findOne(form.getId()).getFileHash()).isEqualTo(STORED_FILE_HASH);
+    }
+
     @Test
     @Transactional
     public void deleteForm() throws Exception {
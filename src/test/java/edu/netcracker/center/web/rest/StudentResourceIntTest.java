@@ -6,7 +6,12 @@ import edu.netcracker.center.domain.Student;
 import edu.netcracker.center.domain.enumeration.UniversityEnumeration;
 import edu.netcracker.center.repository.LearningTypeRepository;
 import edu.netcracker.center.repository.StudentRepository;
+import com.jayway.jsonpath.JsonPath;
 import edu.netcracker.center.service.StudentService;
+import edu.netcracker.center.web.rest.errors.ExceptionTranslator;
+import org.hibernate.search.jpa.FullTextEntityManager;
+import org.hibernate.search.jpa.Search;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -15,21 +20,30 @@ import org.springframework.boot.test.IntegrationTest;
 import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.data.web.querydsl.QuerydslPredicateArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -73,6 +87,13 @@ public class StudentResourceIntTest {
     private static final String DEFAULT_COMMENT = "AAAAA";
     private static final String UPDATED_COMMENT = "BBBBB";
 
+    private static final String SEARCH_LAST_NAME = "Zaitsevsky";
+    private static final String SEARCH_FACULTY = "Kvantovyfaculty";
+
+    private static final String KEYSET_LAST_NAME = "Keysetov";
+
+    private static final Pattern NEXT_LINK = Pattern.compile("<([^>]*)>; rel=\"next\"");
+
     @Inject
     private StudentRepository studentRepository;
 
@@ -91,12 +112,19 @@ public class StudentResourceIntTest {
     @Inject
     private QuerydslPredicateArgumentResolver querydslPredicateArgumentResolver;
 
+    @Inject
+    private EntityManager entityManager;
+
     private MockMvc restStudentMockMvc;
 
+    private MockMvc unpagedStudentMockMvc;
+
     private Student student;
 
     private LearningType learningType;
 
+    private List<Long> indexedIds = new ArrayList<>();
+
     @PostConstruct
     public void setup() {
         MockitoAnnotations.initMocks(this);
@@ -104,6 +132,14 @@ public class StudentResourceIntTest {
         ReflectionTestUtils.setField(studentResource, "studentService", studentService);
         this.restStudentMockMvc = MockMvcBuilders.standaloneSetup(studentResource)
             .setCustomArgumentResolvers(pageableArgumentResolver, querydslPredicateArgumentResolver)
+            .setControllerAdvice(new ExceptionTranslator())
+            .setMessageConverters(jacksonMessageConverter).build();
+        // no pageable is resolved without page and size, as in WebMvcConfiguration
+        PageableHandlerMethodArgumentResolver unpagedArgumentResolver = new PageableHandlerMethodArgumentResolver();
+        unpagedArgumentResolver.setFallbackPageable(null);
+        this.unpagedStudentMockMvc = MockMvcBuilders.standaloneSetup(studentResource)
+            .setCustomArgumentResolvers(unpagedArgumentResolver, querydslPredicateArgumentResolver)
+            .setControllerAdvice(new ExceptionTranslator())
             .setMessageConverters(jacksonMessageConverter).build();
     }
 
@@ -126,6 +162,18 @@ public class StudentResourceIntTest {
         student.setLearningType(learningType);
     }
 
+    @After
+    public void purgeIndex() {
+        if (indexedIds.isEmpty()) {
+            return;
+        }
+        // the index is not rolled back with the test transaction
+        FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(entityManager);
+        indexedIds.forEach(id -> fullTextEntityManager.purge(Student.class, id));
+        fullTextEntityManager.flushToIndexes();
+        indexedIds.clear();
+    }
+
     @Test
     @Transactional
     public void createStudent() throws Exception {
@@ -367,4 +415,205 @@ public class StudentResourceIntTest {
         List<Student> students = studentRepository.findAll();
         assertThat(students).hasSize(databaseSizeBeforeDelete - 1);
     }
+
+    @Test
+    @Transactional
+    public void searchStudentsByPrefix() throws Exception {
+        // Initialize the database
+        Student searched = createSearchedStudent(SEARCH_LAST_NAME, SEARCH_FACULTY);
+        indexStudents(searched);
+
+        restStudentMockMvc.perform(get("/api/students/_search?query=zaitsev"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(searched.getId().intValue())))
+            .andExpect(jsonPath("$.[*].lastName").value(hasItem(SEARCH_LAST_NAME)));
+    }
+
+    @Test
+    @Transactional
+    public void searchStudentsWithTypo() throws Exception {
+        // Initialize the database
+        Student searched = createSearchedStudent(SEARCH_LAST_NAME, SEARCH_FACULTY);
+        indexStudents(searched);
+
+        restStudentMockMvc.perform(get("/api/students/_search?query=Zaytsevsky"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(searched.getId().intValue())));
+
+        // every word must match
+        restStudentMockMvc.perform(get("/api/students/_search?query=Zaytsevsky Petrenkov"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    @Transactional
+    public void searchStudentsWithoutPaging() throws Exception {
+        // Initialize the database
+        Student searched = createSearchedStudent(SEARCH_LAST_NAME, SEARCH_FACULTY);
+        indexStudents(searched);
+
+        // the first page of the default size
+        unpagedStudentMockMvc.perform(get("/api/students/_search?query=zaitsev"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(header().string("Link", containsString(
+                "</api/students/_search?page=0&size=20>; rel=\"first\"")));
+    }
+
+    @Test
+    @Transactional
+    public void searchStudentsIsPaged() throws Exception {
+        // Initialize the database
+        indexStudents(createSearchedStudent("Alekseev", SEARCH_FACULTY),
+            createSearchedStudent("Borisov", SEARCH_FACULTY),
+            createSearchedStudent("Vasiliev", SEARCH_FACULTY));
+
+        restStudentMockMvc.perform(get("/api/students/_search?query=" + SEARCH_FACULTY + "&page=0&size=2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(header().string("X-Total-Count", "3"))
+            .andExpect(header().string("Link", containsString(
+                "</api/students/_search?page=1&size=2>; rel=\"next\"")))
+            .andExpect(header().string("Link", not(containsString("rel=\"prev\""))));
+
+        restStudentMockMvc.perform(get("/api/students/_search?query=" + SEARCH_FACULTY + "&page=1&size=2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(header().string("X-Total-Count", "3"))
+            .andExpect(header().string("Link", containsString(
+                "</api/students/_search?page=0&size=2>; rel=\"prev\"")))
+            .andExpect(header().string("Link", not(containsString("rel=\"next\""))));
+    }
+
+    @Test
+    @Transactional
+    public void getAllStudentsWithoutPaging() throws Exception {
+        // Initialize the database
+        studentRepository.saveAndFlush(student);
+
+        // every student is returned as one page
+        unpagedStudentMockMvc.perform(get("/api/students"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$", hasSize((int) studentRepository.count())))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(student.getId().intValue())))
+            .andExpect(header().string("X-Total-Count", String.valueOf(studentRepository.count())));
+    }
+
+    @Test
+    @Transactional
+    public void getAllStudentsByCursorWithoutSize() throws Exception {
+        // Initialize the database
+        studentRepository.saveAndFlush(student);
+
+        // the first page of the default size sorted by id
+        unpagedStudentMockMvc.perform(get("/api/students?cursor="))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Link", containsString(
+                "</api/students?cursor=&size=20&sort=id,asc>; rel=\"first\"")));
+
+        unpagedStudentMockMvc.perform(get("/api/students?count=false"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Link", containsString(
+                "</api/students?page=0&size=20&count=false>; rel=\"first\"")));
+    }
+
+    @Test
+    @Transactional
+    public void getAllStudentsByCursor() throws Exception {
+        // Initialize the database
+        List<Integer> ids = createKeysetStudents(null, null, null);
+
+        assertThat(getAllByCursor("id,asc")).containsExactly(ids.get(0), ids.get(1), ids.get(2));
+        assertThat(getAllByCursor("id,desc")).containsExactly(ids.get(2), ids.get(1), ids.get(0));
+    }
+
+    @Test
+    @Transactional
+    public void getAllStudentsByCursorWithNullKeys() throws Exception {
+        // Initialize the database
+        List<Integer> ids = createKeysetStudents(null, "Bbbbb", null, "Aaaaa", "Bbbbb");
+
+        // nulls sort lowest, equal keys are ordered by id
+        assertThat(getAllByCursor("middleName,asc"))
+            .containsExactly(ids.get(0), ids.get(2), ids.get(3), ids.get(1), ids.get(4));
+        assertThat(getAllByCursor("middleName,desc"))
+            .containsExactly(ids.get(4), ids.get(1), ids.get(3), ids.get(2), ids.get(0));
+    }
+
+    @Test
+    @Transactional
+    public void getAllStudentsByCursorOfNonPersistentProperty() throws Exception {
+        // a transient property
+        restStudentMockMvc.perform(get("/api/students?cursor=&size=2&sort=loadedStudentsSetId,asc"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("invalidSort"));
+
+        // an association
+        restStudentMockMvc.perform(get("/api/students?cursor=&size=2&sort=learningType,asc"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("invalidSort"));
+
+        restStudentMockMvc.perform(get("/api/students?cursor=notACursor&size=2"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("invalidCursor"));
+    }
+
+    private List<Integer> createKeysetStudents(String... middleNames) {
+        List<Integer> ids = new ArrayList<>();
+        for (String middleName : middleNames) {
+            Student keyset = createSearchedStudent(KEYSET_LAST_NAME + ids.size(), SEARCH_FACULTY);
+            keyset.setLastName(KEYSET_LAST_NAME);
+            keyset.setMiddleName(middleName);
+            studentRepository.saveAndFlush(keyset);
+            ids.add(keyset.getId().intValue());
+        }
+        return ids;
+    }
+
+    /**
+     * Reads the students created by createKeysetStudents one page at a time, following the next links.
+     */
+    private List<Integer> getAllByCursor(String sort) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        String url = "/api/students?cursor=&size=1&sort=" + sort;
+        while (url != null) {
+            MvcResult result = restStudentMockMvc.perform(get(url + "&lastName=" + KEYSET_LAST_NAME))
+                .andExpect(status().isOk())
+                .andReturn();
+            List<Integer> page = JsonPath.read(result.getResponse().getContentAsString(), "$[*].id");
+            assertThat(page).hasSize(1);
+            ids.addAll(page);
+            Matcher next = NEXT_LINK.matcher(result.getResponse().getHeader(HttpHeaders.LINK));
+            url = next.find() ? next.group(1) : null;
+        }
+        return ids;
+    }
+
+    private Student createSearchedStudent(String lastName, String faculty) {
+        Student searched = new Student();
+        searched.setLastName(lastName);
+        searched.setFirstName(DEFAULT_FIRST_NAME);
+        searched.setEmail(lastName.toLowerCase() + "@localhost");
+        searched.setUniversity(DEFAULT_UNIVERSITY);
+        searched.setFaculty(faculty);
+        searched.setIsActive(DEFAULT_IS_ACTIVE);
+        searched.setGotJob(DEFAULT_GOT_JOB);
+        searched.setLearningType(learningType);
+        return searched;
+    }
+
+    private void indexStudents(Student... students) {
+        for (Student searched : students) {
+            studentRepository.saveAndFlush(searched);
+            indexedIds.add(searched.getId());
+        }
+        // the index is updated on commit otherwise
+        Search.getFullTextEntityManager(entityManager).flushToIndexes();
+    }
 }
@@ -0,0 +1,266 @@
+package edu.netcracker.center.web.rest.util;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the FileDownloadUtil.
+ *
+ * @see FileDownloadUtil
+ */
+public class FileDownloadUtilUnitTest {
+
+    private static final String CONTENT = "0123456789";
+
+    private static final String ETAG = "\"file-1\"";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setUp() throws IOException {
+        file = folder.newFile("file.txt");
+        Files.write(file.toPath(), CONTENT.getBytes(StandardCharsets.UTF_8));
+        request = new MockHttpServletRequest("GET", "/file.txt");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    public void testSendFile() throws IOException {
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+        assertThat(response.getHeader("ETag")).isEqualTo(ETAG);
+        assertThat(response.getHeader("Accept-Ranges")).isEqualTo("bytes");
+        assertThat(response.getHeader("Content-Range")).isNull();
+    }
+
+    @Test
+    public void testSendMissingFile() throws IOException {
+        FileDownloadUtil.sendFile(new File(folder.getRoot(), "missing.txt"), "missing.txt", "text/plain", ETAG,
+            request, response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_FOUND);
+    }
+
+    @Test
+    public void testRange() throws IOException {
+        request.addHeader("Range", "bytes=2-4");
+
+        send();
+
+        assertPartialContent("234", "bytes 2-4/10");
+    }
+
+    @Test
+    public void testRangeBeyondEnd() throws IOException {
+        request.addHeader("Range", "bytes=8-20");
+
+        send();
+
+        assertPartialContent("89", "bytes 8-9/10");
+    }
+
+    @Test
+    public void testOpenEndedRange() throws IOException {
+        request.addHeader("Range", "bytes=7-");
+
+        send();
+
+        assertPartialContent("789", "bytes 7-9/10");
+    }
+
+    @Test
+    public void testSuffixRange() throws IOException {
+        request.addHeader("Range", "bytes=-3");
+
+        send();
+
+        assertPartialContent("789", "bytes 7-9/10");
+    }
+
+    @Test
+    public void testSuffixRangeLongerThanFile() throws IOException {
+        request.addHeader("Range", "bytes=-20");
+
+        send();
+
+        assertPartialContent(CONTENT, "bytes 0-9/10");
+    }
+
+    @Test
+    public void testUnsatisfiableRange() throws IOException {
+        request.addHeader("Range", "bytes=10-");
+
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */10");
+    }
+
+    @Test
+    public void testEmptySuffixRange() throws IOException {
+        request.addHeader("Range", "bytes=-0");
+
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+    }
+
+    @Test
+    public void testMultipleRanges() throws IOException {
+        request.addHeader("Range", "bytes=0-1,5-6");
+
+        send();
+
+        // the whole file is sent instead of a multipart response
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    public void testMalformedRange() throws IOException {
+        request.addHeader("Range", "bytes=a-b");
+
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    public void testIfRangeWithMatchingETag() throws IOException {
+        request.addHeader("Range", "bytes=2-4");
+        request.addHeader("If-Range", ETAG);
+
+        send();
+
+        assertPartialContent("234", "bytes 2-4/10");
+    }
+
+    @Test
+    public void testIfRangeWithChangedETag() throws IOException {
+        request.addHeader("Range", "bytes=2-4");
+        request.addHeader("If-Range", "\"file-0\"");
+
+        send();
+
+        // the file has changed since the part was downloaded, so it is sent whole
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    public void testIfRangeWithDate() throws IOException {
+        request.addHeader("Range", "bytes=2-4");
+        request.addHeader("If-Range", file.lastModified());
+
+        send();
+
+        assertPartialContent("234", "bytes 2-4/10");
+    }
+
+    @Test
+    public void testIfRangeWithChangedDate() throws IOException {
+        request.addHeader("Range", "bytes=2-4");
+        request.addHeader("If-Range", file.lastModified() - 60000);
+
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    public void testIfNoneMatch() throws IOException {
+        request.addHeader("If-None-Match", "\"file-0\", " + ETAG);
+
+        send();
+
+        assertNotModified();
+    }
+
+    @Test
+    public void testIfNoneMatchAny() throws IOException {
+        request.addHeader("If-None-Match", "*");
+
+        send();
+
+        assertNotModified();
+    }
+
+    @Test
+    public void testIfNoneMatchWithChangedETag() throws IOException {
+        request.addHeader("If-None-Match", "\"file-0\"");
+        // If-None-Match takes precedence over If-Modified-Since
+        request.addHeader("If-Modified-Since", file.lastModified());
+
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    public void testIfModifiedSince() throws IOException {
+        request.addHeader("If-Modified-Since", file.lastModified());
+
+        send();
+
+        assertNotModified();
+    }
+
+    @Test
+    public void testIfModifiedSinceBeforeChange() throws IOException {
+        request.addHeader("If-Modified-Since", file.lastModified() - 60000);
+
+        send();
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    public void testContentDisposition() {
+        assertThat(FileDownloadUtil.getContentDisposition("Set 1.xlsx"))
+            .isEqualTo("attachment; filename=\"Set 1.xlsx\"; filename*=UTF-8''Set%201.xlsx");
+        assertThat(FileDownloadUtil.getContentDisposition("Отчёт \"1\"*.csv"))
+            .isEqualTo("attachment; filename=\"_____ _1_*.csv\"; " +
+                "filename*=UTF-8''%D0%9E%D1%82%D1%87%D1%91%D1%82%20%221%22%2A.csv");
+    }
+
+    private void send() throws IOException {
+        FileDownloadUtil.sendFile(file, "file.txt", "text/plain", ETAG, request, response);
+    }
+
+    private void assertPartialContent(String content, String contentRange) throws IOException {
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_PARTIAL_CONTENT);
+        assertThat(response.getHeader("Content-Range")).isEqualTo(contentRange);
+        assertThat(response.getContentAsString()).isEqualTo(content);
+    }
+
+    private void assertNotModified() throws IOException {
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+        assertThat(response.getHeader("ETag")).isEqualTo(ETAG);
+        assertThat(response.getContentAsString()).isEmpty();
+    }
+}
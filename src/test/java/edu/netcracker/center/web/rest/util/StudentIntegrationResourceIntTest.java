@@ -0,0 +1,200 @@
+package edu.netcracker.center.web.rest.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.netcracker.center.Application;
+import edu.netcracker.center.domain.Student;
+import edu.netcracker.center.domain.StudentsSet;
+import edu.netcracker.center.domain.enumeration.UniversityEnumeration;
+import edu.netcracker.center.repository.LearningTypeRepository;
+import edu.netcracker.center.repository.StudentRepository;
+import edu.netcracker.center.repository.StudentsSetRepository;
+import edu.netcracker.center.service.HistoryService;
+import edu.netcracker.center.service.RevisionIndexService;
+import edu.netcracker.center.service.StudentService;
+import edu.netcracker.center.service.StudentsSetService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.test.IntegrationTest;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Test class for the StudentIntegrationResource REST controller.
+ *
+ * @see StudentIntegrationResource
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = Application.class)
+@WebAppConfiguration
+@IntegrationTest
+public class StudentIntegrationResourceIntTest {
+
+    // before the first revision
+    private static final String DATE_TIME = "2000-01-01T00:00:00.000+00:00";
+
+    private static final String SET_NAME = "Export";
+
+    private static final String EMAIL = "export@localhost";
+
+    @Inject
+    private HistoryService historyService;
+
+    @Inject
+    private RevisionIndexService revisionIndexService;
+
+    @Inject
+    private StudentService studentService;
+
+    @Inject
+    private StudentsSetService studentsSetService;
+
+    @Inject
+    private StudentRepository studentRepository;
+
+    @Inject
+    private StudentsSetRepository studentsSetRepository;
+
+    @Inject
+    private LearningTypeRepository learningTypeRepository;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @Inject
+    private MappingJackson2HttpMessageConverter jacksonMessageConverter;
+
+    private MockMvc restStudentIntegrationMockMvc;
+
+    @PostConstruct
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+        StudentIntegrationResource studentIntegrationResource = new StudentIntegrationResource();
+        ReflectionTestUtils.setField(studentIntegrationResource, "historyService", historyService);
+        ReflectionTestUtils.setField(studentIntegrationResource, "revisionIndexService", revisionIndexService);
+        ReflectionTestUtils.setField(studentIntegrationResource, "studentService", studentService);
+        ReflectionTestUtils.setField(studentIntegrationResource, "studentsSetService", studentsSetService);
+        ReflectionTestUtils.setField(studentIntegrationResource, "objectMapper", objectMapper);
+        // no pageable is resolved without page and size, as in WebMvcConfiguration
+        PageableHandlerMethodArgumentResolver pageableArgumentResolver = new PageableHandlerMethodArgumentResolver();
+        pageableArgumentResolver.setFallbackPageable(null);
+        this.restStudentIntegrationMockMvc = MockMvcBuilders.standaloneSetup(studentIntegrationResource)
+            .setCustomArgumentResolvers(pageableArgumentResolver)
+            .setMessageConverters(jacksonMessageConverter).build();
+    }
+
+    @Test
+    @Transactional
+    public void getPageOfHistoryOfStudentsWithoutSize() throws Exception {
+        // the first page of the default size
+        restStudentIntegrationMockMvc.perform(get("/api/history/students/" + DATE_TIME + "?lastId=")
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$").isArray())
+            .andExpect(header().string("Link", containsString("?lastId=&size=20>; rel=\"first\"")));
+    }
+
+    @Test
+    public void getRevisionsWithoutPaging() throws Exception {
+        // the first page of the default size
+        restStudentIntegrationMockMvc.perform(get("/api/history/revisions"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isArray())
+            .andExpect(header().string("Link", containsString(
+                "</api/history/revisions?page=0&size=20&count=false>; rel=\"first\"")));
+    }
+
+    @Test
+    @Transactional
+    public void getCsvOfSet() throws Exception {
+        StudentsSet set = createStudentsSet();
+        // separators, quotes and line breaks are quoted
+        Student student = createStudent(set, "Doe, \"Jr\"", "John\r\nJack", null);
+
+        String content = restStudentIntegrationMockMvc.perform(get("/api/export/students/{id}", set.getId())
+            .accept(StudentIntegrationResource.TEXT_CSV_VALUE))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Disposition",
+                "attachment; filename=\"" + SET_NAME + ".csv\"; filename*=UTF-8''" + SET_NAME + ".csv"))
+            .andReturn().getResponse().getContentAsString();
+
+        // a record ends before the id of the next one, the quoted line break is kept in its value
+        String[] lines = content.split("\r\n(?=\\d|$)");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("id,lastName,firstName,middleName,email,");
+        assertThat(lines[1]).startsWith(student.getId() + ",\"Doe, \"\"Jr\"\"\",\"John\r\nJack\",," + EMAIL + ",,");
+        assertThat(lines[1]).endsWith("," + SET_NAME);
+    }
+
+    @Test
+    @Transactional
+    public void getNdjsonOfSet() throws Exception {
+        StudentsSet set = createStudentsSet();
+        Student first = createStudent(set, "First", "AAAAA", "line\nbreak");
+        Student second = createStudent(set, "Second", "BBBBB", null);
+
+        String content = restStudentIntegrationMockMvc.perform(get("/api/export/students/{id}", set.getId())
+            .accept(StudentIntegrationResource.APPLICATION_NDJSON_VALUE))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        // one JSON object per line, line breaks inside the values are escaped
+        assertThat(content).endsWith("\n");
+        String[] lines = content.split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode firstRow = objectMapper.readTree(lines[0]);
+        assertThat(firstRow.get("id").asLong()).isEqualTo(first.getId());
+        assertThat(firstRow.get("comment").asText()).isEqualTo("line\nbreak");
+        assertThat(objectMapper.readTree(lines[1]).get("id").asLong()).isEqualTo(second.getId());
+    }
+
+    @Test
+    @Transactional
+    public void getExportOfNonExistingSet() throws Exception {
+        restStudentIntegrationMockMvc.perform(get("/api/export/students/{id}", Long.MAX_VALUE)
+            .accept(StudentIntegrationResource.TEXT_CSV_VALUE))
+            .andExpect(status().isNotFound());
+        restStudentIntegrationMockMvc.perform(get("/api/export/students/{id}", Long.MAX_VALUE)
+            .accept(StudentIntegrationResource.APPLICATION_NDJSON_VALUE))
+            .andExpect(status().isNotFound());
+    }
+
+    private StudentsSet createStudentsSet() {
+        StudentsSet set = new StudentsSet();
+        set.setName(SET_NAME);
+        set.setIsActive(true);
+        return studentsSetRepository.saveAndFlush(set);
+    }
+
+    private Student createStudent(StudentsSet set, String lastName, String firstName, String comment) {
+        Student student = new Student();
+        student.setLastName(lastName);
+        student.setFirstName(firstName);
+        student.setEmail(EMAIL);
+        student.setComment(comment);
+        student.setUniversity(UniversityEnumeration.СГТУ);
+        student.setIsActive(true);
+        student.setGotJob(false);
+        student.setStudentsSet(set);
+        student.setLearningType(learningTypeRepository.findOne(1L));
+        return studentRepository.saveAndFlush(student);
+    }
+}